@@ -1,28 +1,30 @@
 package minesweeper;
 
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import processing.core.PApplet;
+import processing.core.PGraphics;
 import processing.core.PImage;
 import processing.event.KeyEvent;
 import processing.event.MouseEvent;
 
 public class App extends PApplet {
 
-  public static final int CELLSIZE = 32;
+  public static final int SPRITE_SIZE = 32;
   public static final int TOPBAR = 64;
-  public static int WIDTH = 864;
-  public static int HEIGHT = 640;
-  public static final int BOARD_WIDTH = WIDTH / CELLSIZE;
-  public static final int BOARD_HEIGHT = (HEIGHT - TOPBAR) / CELLSIZE;
 
   public static final int FPS = 30;
-  public static final int DEFAULT_MINES = 100;
-  private int mineCount;
+  private BoardConfig config;
 
   public static Random random = new Random();
+  private static long launchTime;
 
   public static int[][] mineCountColour =
       new int[][] {
@@ -37,49 +39,94 @@ public class App extends PApplet {
         {32, 32, 32}
       };
 
-  private Tile[][] board;
+  private Board board;
+  private Tile[] tiles;
+  private Board3D layers;
+  private LayerView layerView;
+  private PGraphics boardLayer;
+  private List<Tile> animating = new ArrayList<>();
+  private final BoardInput input = new BoardInput();
   private HashMap<String, PImage> sprites = new HashMap<>();
   private boolean gameOver;
   private boolean win;
   private int timer;
   private int startTime;
+  private long seed;
+  private int clicks;
+  private ScoreStore scores;
+  private BoardAnalyzer analyzer;
+  private boolean showStats;
   private List<Tile> minesToExplode = new ArrayList<>();
   private Tile initialExplodedMine;
   private int explosionRadius = 0;
-  private static final int MAX_EXPLOSION_RADIUS = Math.max(BOARD_WIDTH, BOARD_HEIGHT);
   private static final int EXPLOSION_SPEED = 2; // 每帧爆炸半径增加的速度
+  private static final long REVEAL_BUDGET_NANOS = 8_000_000;
+  private int revealsPainted;
 
   @Override
   public void settings() {
-    size(WIDTH, HEIGHT);
+    config = BoardConfig.fromArgs(args);
+    size(config.windowWidth(), config.windowHeight());
   }
 
   @Override
   public void setup() {
     frameRate(FPS);
+    scores = new ScoreStore(scoresPath());
+    scores.open();
     loadSprites();
     initializeBoard();
-    setMineCount(args);
     resetGame();
   }
 
+  private void applyConfig(BoardConfig newConfig) {
+    config = newConfig;
+    surface.setSize(config.windowWidth(), config.windowHeight());
+    loadSprites();
+    initializeBoard();
+    resetGame();
+  }
+
+  // The PNGs are already being read in the background, see main().
   private void loadSprites() {
-    String[] spriteNames = {"tile1", "tile2", "flag", "tile", "wall0"};
-    for (String name : spriteNames) {
-      getSprite(name);
-    }
-    for (int i = 0; i < 10; i++) {
-      getSprite("mine" + i);
+    sprites.clear();
+    for (Map.Entry<String, BufferedImage> e : Sprites.load(config.getCellSize()).entrySet()) {
+      sprites.put(e.getKey(), new PImage(e.getValue()));
     }
   }
 
+  // Layered boards are drawn from the board arrays by a LayerView; only flat boards get tiles.
   private void initializeBoard() {
-    board = new Tile[BOARD_HEIGHT][BOARD_WIDTH];
-    for (int y = 0; y < BOARD_HEIGHT; y++) {
-      for (int x = 0; x < BOARD_WIDTH; x++) {
-        board[y][x] = new Tile(x, y);
+    boardLayer = createGraphics(config.windowWidth(), config.windowHeight() - TOPBAR);
+    if (config.getDepth() > 1) {
+      layers = new Board3D(config.getWidth(), config.getHeight(), config.getDepth());
+      layerView = new LayerView(layers, config.getCellSize());
+      board = null;
+      tiles = new Tile[0];
+      analyzer = null;
+      return;
+    }
+    layers = null;
+    layerView = null;
+    board = new Board(config.getWidth(), config.getHeight(), config.getTopology());
+    tiles = new Tile[board.cellCount()];
+    for (int y = 0; y < config.getHeight(); y++) {
+      for (int x = 0; x < config.getWidth(); x++) {
+        tiles[board.index(x, y)] = new Tile(board, x, y, config.getCellSize());
+      }
+    }
+    analyzer = new BoardAnalyzer(board.cellCount());
+  }
+
+  private Path scoresPath() {
+    if (args != null) {
+      for (String arg : args) {
+        if (arg.startsWith("--scores=")) {
+          return Paths.get(arg.substring("--scores=".length()));
+        }
       }
     }
+    return Paths.get(System.getProperty("user.home"), ".minesweeper", "scores.log");
   }
 
   private void resetGame() {
@@ -87,22 +134,23 @@ public class App extends PApplet {
     win = false;
     timer = 0;
     startTime = millis();
+    clicks = 0;
+    input.reset(layers != null ? layers.cellCount() : board.cellCount());
+    seed = random.nextLong();
     minesToExplode.clear();
+    animating.clear();
+    initialExplodedMine = null;
+    revealsPainted = 0;
 
-    for (Tile[] row : board) {
-      for (Tile tile : row) {
-        tile.reset();
-      }
+    for (Tile tile : tiles) {
+      tile.reset();
     }
-
-    int minesPlaced = 0;
-    while (minesPlaced < mineCount) {
-      int x = random.nextInt(BOARD_WIDTH);
-      int y = random.nextInt(BOARD_HEIGHT);
-      if (!board[y][x].hasMine()) {
-        board[y][x].setMine(true);
-        minesPlaced++;
-      }
+    if (layers != null) {
+      layers.clear();
+      layers.placeMines(config.getMines(), new Random(seed));
+    } else {
+      board.clear();
+      board.placeMines(config.getMines(), new Random(seed));
     }
   }
 
@@ -110,16 +158,16 @@ public class App extends PApplet {
     int centerX = initialExplodedMine.getX();
     int centerY = initialExplodedMine.getY();
 
-    for (int y = 0; y < BOARD_HEIGHT; y++) {
-      for (int x = 0; x < BOARD_WIDTH; x++) {
-        Tile tile = board[y][x];
-        if (tile.hasMine() && !tile.isRevealed()) {
-          int dx = x - centerX;
-          int dy = y - centerY;
-          double distance = Math.sqrt(dx * dx + dy * dy);
-          if (distance <= explosionRadius) {
-            tile.reveal();
-            tile.startExplosion();
+    for (Tile tile : tiles) {
+      // Flagged mines stay flagged, as in the classic game.
+      if (tile.hasMine() && !tile.isRevealed() && !tile.isFlagged()) {
+        int dx = tile.getX() - centerX;
+        int dy = tile.getY() - centerY;
+        double distance = Math.sqrt(dx * dx + dy * dy);
+        if (distance <= explosionRadius) {
+          tile.reveal();
+          if (tile.startExplosion()) {
+            animating.add(tile);
           }
         }
       }
@@ -131,7 +179,7 @@ public class App extends PApplet {
       return;
     }
 
-    if (explosionRadius < MAX_EXPLOSION_RADIUS) {
+    if (explosionRadius < Math.max(config.getWidth(), config.getHeight())) {
       explosionRadius += EXPLOSION_SPEED;
       revealMinesInRadius();
     }
@@ -139,9 +187,18 @@ public class App extends PApplet {
 
   @Override
   public void draw() {
+    if (frameCount == 1 && launchTime != 0) {
+      println("Startup: " + (System.nanoTime() - launchTime) / 1000000 + " ms to first frame");
+    }
     background(200, 200, 200);
-    drawBoard();
+    applyInput();
+    updateBoardLayer();
+    image(boardLayer, 0, TOPBAR);
+    drawHover();
     drawTopBar();
+    if (showStats) {
+      drawStats();
+    }
     checkWinCondition();
 
     if (gameOver && !win) {
@@ -149,60 +206,202 @@ public class App extends PApplet {
     }
   }
 
-  private void drawBoard() {
-    for (Tile[] row : board) {
-      for (Tile tile : row) {
-        tile.draw(this);
+  // Only cells inside the board's dirty region, newly revealed cells and running explosions are
+  // redrawn. Reveals are painted in the order the flood fill found them, for at most
+  // REVEAL_BUDGET_NANOS per frame, so a huge opening spreads out as a wave over several frames
+  // while the game state is already complete.
+  private void updateBoardLayer() {
+    if (layers != null) {
+      int[] region = layers.takeDirtyRegion();
+      if (region != null) {
+        boardLayer.beginDraw();
+        layerView.draw(boardLayer, this, region, gameOver && !win);
+        boardLayer.endDraw();
+      }
+      return;
+    }
+    int[] region = board.takeDirtyRegion();
+    int[] revealLog = board.getRevealLog();
+    int revealCount = board.getRevealLogLength();
+    if (region == null && animating.isEmpty() && revealsPainted == revealCount) {
+      return;
+    }
+    boardLayer.beginDraw();
+    if (region != null) {
+      for (int y = region[1]; y <= region[3]; y++) {
+        for (int x = region[0]; x <= region[2]; x++) {
+          tiles[board.index(x, y)].draw(boardLayer, this);
+        }
+      }
+    }
+    long deadline = System.nanoTime() + REVEAL_BUDGET_NANOS;
+    while (revealsPainted < revealCount) {
+      tiles[revealLog[revealsPainted++]].draw(boardLayer, this);
+      if ((revealsPainted & 255) == 0 && System.nanoTime() > deadline) {
+        break;
+      }
+    }
+    for (Iterator<Tile> it = animating.iterator(); it.hasNext(); ) {
+      Tile tile = it.next();
+      tile.advanceExplosion(frameCount);
+      tile.draw(boardLayer, this);
+      if (tile.isExplosionFinished()) {
+        it.remove();
+      }
+    }
+    boardLayer.endDraw();
+  }
+
+  private void drawHover() {
+    int index = input.getHovered();
+    if (layers != null) {
+      if (index >= 0) {
+        layerView.drawHover(this, index, input.isPressed(index));
+      }
+      if (input.getCursor() >= 0) {
+        layerView.drawCursor(this, input.getCursor());
+      }
+      return;
+    }
+    if (index >= 0) {
+      tiles[index].drawHover(this, input.isPressed(index));
+    }
+    if (input.getCursor() >= 0) {
+      tiles[input.getCursor()].drawCursor(this);
+    }
+  }
+
+  // Applies every action queued since the last frame, in order.
+  private void applyInput() {
+    while (input.hasNext()) {
+      int packed = input.next();
+      if (gameOver) {
+        continue;
+      }
+      int index = BoardInput.cell(packed);
+      clicks++;
+      if (layers != null) {
+        applyLayerAction(BoardInput.action(packed), index);
+        checkWinCondition();
+        continue;
+      }
+      switch (BoardInput.action(packed)) {
+        case BoardInput.REVEAL:
+          tiles[index].onClick(this);
+          break;
+        case BoardInput.FLAG:
+          tiles[index].toggleFlag();
+          break;
+        case BoardInput.CHORD:
+          chord(index);
+          break;
+        default:
+          break;
+      }
+      checkWinCondition();
+    }
+  }
+
+  private void applyLayerAction(int action, int index) {
+    switch (action) {
+      case BoardInput.REVEAL:
+        layers.reveal(index);
+        break;
+      case BoardInput.FLAG:
+        layers.toggleFlag(index);
+        break;
+      case BoardInput.CHORD:
+        layers.chord(index);
+        break;
+      default:
+        break;
+    }
+    if (layers.getTriggeredMine() >= 0) {
+      gameOver(false);
+    }
+  }
+
+  private void showLayer(int z) {
+    int previous = layerView.getLayer();
+    if (layerView.setLayer(z)) {
+      layers.markAllDirty();
+      int layerSize = config.getWidth() * config.getHeight();
+      if (input.getCursor() >= 0) {
+        input.setCursor(input.getCursor() + (layerView.getLayer() - previous) * layerSize);
       }
+      input.hover(cellAt(mouseX, mouseY));
     }
   }
 
   private void drawTopBar() {
     fill(150);
-    rect(0, 0, WIDTH, TOPBAR);
+    rect(0, 0, width, TOPBAR);
 
     if (!gameOver) {
-      timer = (millis() - startTime) / 1000;
+      timer = millis() - startTime;
     }
 
     textAlign(RIGHT, CENTER);
     textSize(24);
     fill(255);
-    text("Time: " + timer, WIDTH - 10, TOPBAR / 2);
+    text(
+        "Time: " + (gameOver ? nf(timer / 1000f, 0, 3) : String.valueOf(timer / 1000)),
+        width - 10,
+        TOPBAR / 2);
+
+    if (layers != null) {
+      textAlign(LEFT, CENTER);
+      text("Layer " + (layerView.getLayer() + 1) + "/" + layers.getDepth(), 10, TOPBAR / 2);
+    }
 
     if (gameOver) {
       textAlign(CENTER, CENTER);
       textSize(30);
       fill(255);
-      text(win ? "You win!" : "You lost!", WIDTH / 2, TOPBAR / 2);
+      text(win ? "You win!" : "You lost!", width / 2, TOPBAR / 2);
+    }
+  }
+
+  private void drawStats() {
+    String key = config.toString();
+    List<String> lines = new ArrayList<>();
+    lines.add("Stats for " + key);
+    lines.add("Games: " + scores.games(key) + "  Wins: " + scores.wins(key));
+    if (scores.wins(key) > 0) {
+      lines.add(
+          "Median: "
+              + nf(scores.percentile(key, 50) / 1000f, 0, 3)
+              + " s  90th: "
+              + nf(scores.percentile(key, 90) / 1000f, 0, 3)
+              + " s");
+    }
+    int rank = 1;
+    for (ScoreStore.Game game : scores.top(key, 5)) {
+      String bbbvPerSecond = nf((float) game.bbbvPerSecond(), 0, 2);
+      lines.add(rank++ + ". " + nf(game.millis / 1000f, 0, 3) + " s  3BV/s " + bbbvPerSecond);
+    }
+
+    fill(0, 180);
+    rect(0, TOPBAR, width, 24 * lines.size() + 16);
+    textAlign(LEFT, TOP);
+    textSize(16);
+    fill(255);
+    for (int i = 0; i < lines.size(); i++) {
+      text(lines.get(i), 10, TOPBAR + 8 + 24 * i);
     }
   }
 
   private void checkWinCondition() {
-    if (!gameOver) {
-      boolean allNonMinesRevealed = true;
-      for (Tile[] row : board) {
-        for (Tile tile : row) {
-          if (!tile.hasMine() && !tile.isRevealed()) {
-            allNonMinesRevealed = false;
-            break;
-          }
-        }
-        if (!allNonMinesRevealed) break;
-      }
-      if (allNonMinesRevealed) {
-        gameOver(true);
-      }
+    if (!gameOver && (layers != null ? layers.isCleared() : board.isCleared())) {
+      gameOver(true);
     }
   }
 
   private void revealAllMines() {
     if (minesToExplode.isEmpty()) {
-      for (Tile[] row : board) {
-        for (Tile tile : row) {
-          if (tile.hasMine()) {
-            minesToExplode.add(tile);
-          }
+      for (Tile tile : tiles) {
+        if (tile.hasMine()) {
+          minesToExplode.add(tile);
         }
       }
     } else {
@@ -217,64 +416,120 @@ public class App extends PApplet {
     }
   }
 
-  public void setMineCount(String[] args) {
-    mineCount = DEFAULT_MINES;
-    if (args != null && args.length > 0) {
-      try {
-        int inputMines = Integer.parseInt(args[0]);
-        if (inputMines > 0 && inputMines < BOARD_WIDTH * BOARD_HEIGHT) {
-          mineCount = inputMines;
-        }
-      } catch (NumberFormatException e) {
-      }
-    }
+  @Override
+  public void mousePressed(MouseEvent e) {
+    input.mousePressed(e.getButton(), cellAt(e.getX(), e.getY()));
   }
 
   @Override
-  public void mousePressed(MouseEvent e) {
-    if (!gameOver && e.getY() > TOPBAR) {
-      int x = e.getX() / CELLSIZE;
-      int y = (e.getY() - TOPBAR) / CELLSIZE;
-      if (x >= 0 && x < BOARD_WIDTH && y >= 0 && y < BOARD_HEIGHT) {
-        if (e.getButton() == LEFT) {
-          board[y][x].onClick(this);
-        } else if (e.getButton() == RIGHT) {
-          board[y][x].toggleFlag();
-        }
-      }
+  public void mouseReleased(MouseEvent e) {
+    input.mouseReleased(e.getButton());
+  }
+
+  @Override
+  public void mouseMoved(MouseEvent e) {
+    input.hover(cellAt(e.getX(), e.getY()));
+  }
+
+  @Override
+  public void mouseDragged(MouseEvent e) {
+    input.hover(cellAt(e.getX(), e.getY()));
+  }
+
+  @Override
+  public void mouseExited(MouseEvent e) {
+    input.hover(-1);
+  }
+
+  private void chord(int index) {
+    board.chord(index);
+    if (board.getTriggeredMine() >= 0) {
+      tiles[board.getTriggeredMine()].startExplosion();
+      gameOver(false);
+    }
+  }
+
+  private int cellAt(int px, int py) {
+    if (layers != null) {
+      return layerView.cellAt(px, py);
     }
+    Topology topology = config.getTopology();
+    return topology.cellAt(px, py, config.getWidth(), config.getHeight(), config.getCellSize());
   }
 
   @Override
   public void keyPressed(KeyEvent event) {
-    if (event.getKey() == 'r' || event.getKey() == 'R') {
+    char key = event.getKey();
+    if (key == CODED) {
+      int dx = event.getKeyCode() == LEFT ? -1 : event.getKeyCode() == RIGHT ? 1 : 0;
+      int dy = event.getKeyCode() == UP ? -1 : event.getKeyCode() == DOWN ? 1 : 0;
+      if (dx != 0 || dy != 0) {
+        if (layers != null && input.getCursor() < 0 && input.getHovered() < 0) {
+          input.setCursor(layers.index(0, 0, layerView.getLayer()));
+        } else {
+          input.moveCursor(dx, dy, config.getWidth(), config.getHeight());
+        }
+      }
+    } else if (layers != null && (key == '[' || key == ']')) {
+      showLayer(layerView.getLayer() + (key == '[' ? -1 : 1));
+    } else if (input.getCursor() >= 0 && (key == ' ' || key == ENTER || key == RETURN)) {
+      input.enqueue(BoardInput.REVEAL, input.getCursor());
+    } else if (input.getCursor() >= 0 && (key == 'f' || key == 'F')) {
+      input.enqueue(BoardInput.FLAG, input.getCursor());
+    } else if (input.getCursor() >= 0 && (key == 'c' || key == 'C')) {
+      input.enqueue(BoardInput.CHORD, input.getCursor());
+    } else if (key == 'r' || key == 'R') {
       resetGame();
+    } else if (key == 's' || key == 'S') {
+      showStats = !showStats;
+    } else if (key >= '1' && key < '1' + BoardConfig.Preset.values().length) {
+      applyConfig(BoardConfig.Preset.values()[key - '1'].toConfig(config.getTopology()));
     }
   }
 
   public void gameOver(boolean playerWins) {
     gameOver = true;
     win = playerWins;
-    if (!playerWins) {
-      for (Tile[] row : board) {
-        for (Tile tile : row) {
-          if (tile.hasMine() && tile.isRevealed()) {
-            initialExplodedMine = tile;
-            explosionRadius = 0;
-            return;
-          }
-        }
-      }
+    timer = millis() - startTime;
+    scores.record(
+        new ScoreStore.Game(
+            System.currentTimeMillis(),
+            config.toString(),
+            seed,
+            timer,
+            clicks,
+            analyzer != null ? analyzer.bbbv(board) : 0,
+            playerWins));
+    if (layers != null) {
+      layers.markAllDirty();
+    } else if (!playerWins && board.getTriggeredMine() >= 0) {
+      initialExplodedMine = tiles[board.getTriggeredMine()];
+      explosionRadius = 0;
+      animating.add(initialExplodedMine);
+    }
+  }
+
+  @Override
+  public void dispose() {
+    if (scores != null) {
+      scores.close();
     }
+    super.dispose();
   }
 
   public PImage getSprite(String s) {
-    return sprites.computeIfAbsent(
-        s,
-        key -> loadImage(this.getClass().getResource(key + ".png").getPath().replace("%20", " ")));
+    return sprites.get(s);
+  }
+
+  public BoardInput getInput() {
+    return input;
   }
 
-  public Tile[][] getBoard() {
+  public BoardConfig getConfig() {
+    return config;
+  }
+
+  public Board getBoard() {
     return this.board;
   }
 
@@ -283,6 +538,11 @@ public class App extends PApplet {
   }
 
   public static void main(String[] args) {
+    // Run with -Dminesweeper.timing=true to print the time from launch to the first frame.
+    if (Boolean.getBoolean("minesweeper.timing")) {
+      launchTime = System.nanoTime();
+    }
+    Sprites.preload();
     PApplet.runSketch(concat(new String[] {"minesweeper.App"}, args), new App());
   }
 }
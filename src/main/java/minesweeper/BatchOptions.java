@@ -0,0 +1,121 @@
+package minesweeper;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Options shared by the batch tools, {@link BoardAnalyzer} and {@link BoardRenderer}: the board
+ * options of {@link BoardConfig#fromArgs} plus {@code --boards=N}, {@code --seed=S} (the first
+ * seed), {@code --threads=T} and {@code --engine=board|bitboard}. Board {@code i} of a run uses
+ * seed {@code firstSeed + i}. The bitboard engine deals the same boards but adds up the neighbour
+ * counts with {@link BitBoard}, and only works on square boards.
+ */
+public class BatchOptions {
+
+  /** Work on the seeds from {@code first} up to (excluding) {@code last}, on a worker thread. */
+  public interface Chunk<T> {
+    T run(long first, long last) throws IOException;
+  }
+
+  /** Takes the result of each chunk on the calling thread, in seed order. */
+  public interface Sink<T> {
+    void accept(T result) throws IOException;
+  }
+
+  public final BoardConfig config;
+  public final long boards;
+  public final long firstSeed;
+  public final int threads;
+  public final boolean bitBoard;
+  private final ThreadLocal<BitBoard> bitsPerThread;
+
+  private BatchOptions(
+      BoardConfig config, long boards, long firstSeed, int threads, boolean bitBoard) {
+    this.config = config;
+    this.boards = boards;
+    this.firstSeed = firstSeed;
+    this.threads = threads;
+    this.bitBoard = bitBoard;
+    this.bitsPerThread =
+        ThreadLocal.withInitial(() -> new BitBoard(config.getWidth(), config.getHeight()));
+  }
+
+  public static BatchOptions fromArgs(String[] args, long defaultBoards) {
+    long boards = defaultBoards;
+    long firstSeed = 0;
+    int threads = Runtime.getRuntime().availableProcessors();
+    boolean bitBoard = false;
+    for (String arg : args) {
+      if (arg.startsWith("--boards=")) {
+        boards = Long.parseLong(arg.substring("--boards=".length()));
+      } else if (arg.startsWith("--seed=")) {
+        firstSeed = Long.parseLong(arg.substring("--seed=".length()));
+      } else if (arg.startsWith("--threads=")) {
+        threads = Integer.parseInt(arg.substring("--threads=".length()));
+      } else if (arg.startsWith("--engine=")) {
+        String engine = arg.substring("--engine=".length());
+        if (!engine.equals("board") && !engine.equals("bitboard")) {
+          throw new IllegalArgumentException("Unknown engine " + engine);
+        }
+        bitBoard = engine.equals("bitboard");
+      }
+    }
+    BoardConfig config = BoardConfig.fromArgs(args);
+    if (bitBoard && config.getTopology() != Topology.SQUARE) {
+      throw new IllegalArgumentException("The bitboard engine needs a square board");
+    }
+    return new BatchOptions(config, boards, firstSeed, threads, bitBoard);
+  }
+
+  /** One board per worker thread, reused for every seed that thread handles. */
+  public ThreadLocal<Board> boardPerThread() {
+    return ThreadLocal.withInitial(
+        () -> new Board(config.getWidth(), config.getHeight(), config.getTopology()));
+  }
+
+  /**
+   * Runs every seed of the batch in chunks of {@code chunkSize} on {@link #threads} workers and
+   * passes the results to {@code sink} in seed order. At most {@code threads * 4} chunks are
+   * queued or waiting for the sink at once, so memory stays flat for any number of boards.
+   */
+  public <T> void forEachChunk(int chunkSize, Chunk<T> chunk, Sink<T> sink)
+      throws IOException, InterruptedException {
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    ArrayDeque<Future<T>> inFlight = new ArrayDeque<>();
+    try {
+      for (long from = 0; from < boards; from += chunkSize) {
+        long first = firstSeed + from;
+        long last = firstSeed + Math.min(boards, from + chunkSize);
+        inFlight.add(pool.submit(() -> chunk.run(first, last)));
+        if (inFlight.size() >= threads * 4) {
+          sink.accept(inFlight.poll().get());
+        }
+      }
+      while (!inFlight.isEmpty()) {
+        sink.accept(inFlight.poll().get());
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /** Resets the board and lays out the mines for {@code seed}. */
+  public void deal(Board board, long seed) {
+    board.clear();
+    if (bitBoard) {
+      board.placeMines(config.getMines(), new Random(seed), bitsPerThread.get());
+    } else {
+      board.placeMines(config.getMines(), new Random(seed));
+    }
+  }
+}
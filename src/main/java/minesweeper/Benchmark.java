@@ -0,0 +1,135 @@
+package minesweeper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Micro benchmarks for the board engines. Run with {@code gradle benchmark} or {@code java -cp
+ * <jar> minesweeper.Benchmark [width] [height] [density] [depth]}; with a depth, the layered 3D
+ * board of that many layers is measured instead.
+ */
+public class Benchmark {
+
+  public static void main(String[] args) {
+    int width = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    int height = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+    double density = args.length > 2 ? Double.parseDouble(args[2]) : 0.15;
+    if (args.length > 3) {
+      layered(width, height, Integer.parseInt(args[3]), density);
+      return;
+    }
+    int mines = (int) (width * height * density);
+    System.out.println("Board " + width + "x" + height + ", " + mines + " mines");
+
+    Board board = new Board(width, height, Topology.SQUARE);
+    board.placeMines(mines, new Random(1));
+    BitBoard bits = BitBoard.of(board);
+    byte[] counts = new byte[width * height];
+
+    time("Tile-style list counts", 3, () -> tileStyleCounts(board, counts));
+    time("Neighbour table counts", 10, () -> tableCounts(board, counts));
+    time("Bitboard counts", 50, bits::computeCounts);
+    time("Bitboard counts + copy", 20, () -> {
+      bits.computeCounts();
+      bits.copyCounts(counts);
+    });
+
+    int opening = largestOpening(board);
+    System.out.println("Largest opening starts at cell " + opening);
+    time("Board flood fill", 10, () -> {
+      board.hideAll();
+      board.reveal(opening);
+    });
+    time("Bitboard flood fill", 10, () -> {
+      bits.hideAll();
+      bits.reveal(opening % width, opening / width);
+    });
+  }
+
+  private static void layered(int width, int height, int depth, double density) {
+    int mines = (int) ((long) width * height * depth * density);
+    System.out.println("Board " + width + "x" + height + "x" + depth + ", " + mines + " mines");
+    Board3D board = new Board3D(width, height, depth);
+    time("Layered mines + counts", 5, () -> {
+      board.clear();
+      board.placeMines(mines, new Random(1));
+    });
+    int opening = -1;
+    for (int i = 0; i < board.cellCount() && opening < 0; i++) {
+      if (!board.hasMine(i) && board.countAdjacentMines(i) == 0) {
+        opening = i;
+      }
+    }
+    int start = opening;
+    System.out.println("Flood fill starts at cell " + start);
+    time("Layered flood fill", 5, () -> {
+      board.hideAll();
+      board.reveal(start);
+    });
+  }
+
+  private static int largestOpening(Board board) {
+    int best = -1;
+    int bestSize = 0;
+    board.hideAll();
+    for (int i = 0; i < board.cellCount(); i++) {
+      if (!board.hasMine(i) && !board.isRevealed(i) && board.countAdjacentMines(i) == 0) {
+        int size = board.reveal(i);
+        if (size > bestSize) {
+          best = i;
+          bestSize = size;
+        }
+      }
+    }
+    board.hideAll();
+    return best;
+  }
+
+  static void time(String name, int runs, Runnable task) {
+    for (int i = 0; i < Math.max(3, runs / 2); i++) {
+      task.run();
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < runs; i++) {
+      task.run();
+    }
+    double ms = (System.nanoTime() - start) / 1e6 / runs;
+    System.out.printf("%-28s %10.3f ms%n", name, ms);
+  }
+
+  // The per-cell approach the game used before Board: build a neighbour list, then count it.
+  private static void tileStyleCounts(Board board, byte[] counts) {
+    int width = board.getWidth();
+    int height = board.getHeight();
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        List<Integer> adjacent = new ArrayList<>();
+        for (int dy = -1; dy <= 1; dy++) {
+          for (int dx = -1; dx <= 1; dx++) {
+            int nx = x + dx;
+            int ny = y + dy;
+            if ((dx != 0 || dy != 0) && nx >= 0 && nx < width && ny >= 0 && ny < height) {
+              adjacent.add(board.index(nx, ny));
+            }
+          }
+        }
+        counts[board.index(x, y)] = (byte) adjacent.stream().filter(board::hasMine).count();
+      }
+    }
+  }
+
+  private static void tableCounts(Board board, byte[] counts) {
+    int[] start = board.getNeighbourStart();
+    int[] neighbours = board.getNeighbours();
+    for (int i = 0; i < counts.length; i++) {
+      int count = 0;
+      for (int k = start[i]; k < start[i + 1]; k++) {
+        if (board.hasMine(neighbours[k])) {
+          count++;
+        }
+      }
+      counts[i] = (byte) count;
+    }
+  }
+}
@@ -0,0 +1,357 @@
+package minesweeper;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Square-topology board stored as bitboards: each row is {@code words} longs and bit {@code i} of
+ * word {@code w} is column {@code w * 64 + i}. Neighbour counts and openings are computed 64 cells
+ * at a time with shifts and bit-sliced adders, which makes it the engine for bulk simulation.
+ */
+public class BitBoard {
+  private final int width;
+  private final int height;
+  private final int words;
+  private final long[] mines;
+  private final long[] revealed;
+  private final long[] valid;
+  private final long[] zero;
+  private final long[][] planes;
+  private final long[] region;
+
+  public BitBoard(int width, int height) {
+    this.width = width;
+    this.height = height;
+    this.words = (width + 63) >>> 6;
+    this.mines = new long[height * words];
+    this.revealed = new long[height * words];
+    this.valid = new long[words];
+    this.zero = new long[height * words];
+    this.planes = new long[4][height * words];
+    this.region = new long[height * words];
+    for (int x = 0; x < width; x++) {
+      valid[x >>> 6] |= 1L << x;
+    }
+  }
+
+  public static BitBoard of(Board board) {
+    BitBoard bits = new BitBoard(board.getWidth(), board.getHeight());
+    for (int y = 0; y < board.getHeight(); y++) {
+      for (int x = 0; x < board.getWidth(); x++) {
+        if (board.hasMine(board.index(x, y))) {
+          bits.setMine(x, y);
+        }
+      }
+    }
+    return bits;
+  }
+
+  public void clear() {
+    Arrays.fill(mines, 0);
+    Arrays.fill(revealed, 0);
+  }
+
+  /** Hides every cell again, keeping the mines. */
+  public void hideAll() {
+    Arrays.fill(revealed, 0);
+  }
+
+  public void placeMines(int count, Random random) {
+    int placed = 0;
+    while (placed < count) {
+      int x = random.nextInt(width);
+      int y = random.nextInt(height);
+      if (!hasMine(x, y)) {
+        setMine(x, y);
+        placed++;
+      }
+    }
+  }
+
+  public void setMine(int x, int y) {
+    mines[y * words + (x >>> 6)] |= 1L << x;
+  }
+
+  public boolean hasMine(int x, int y) {
+    return (mines[y * words + (x >>> 6)] & (1L << x)) != 0;
+  }
+
+  public boolean isRevealed(int x, int y) {
+    return (revealed[y * words + (x >>> 6)] & (1L << x)) != 0;
+  }
+
+  /**
+   * Computes the adjacent-mine count of every cell as four bit planes, plus the mask of safe cells
+   * with no adjacent mines. Must be called after the mines change and before {@link #count} or
+   * {@link #reveal}.
+   */
+  public void computeCounts() {
+    long[] p0 = planes[0];
+    long[] p1 = planes[1];
+    long[] p2 = planes[2];
+    long[] p3 = planes[3];
+    for (int y = 0; y < height; y++) {
+      int row = y * words;
+      int up = y > 0 ? row - words : -1;
+      int down = y < height - 1 ? row + words : -1;
+      // Vertical sums of the column at each word boundary, carried in from the left neighbour.
+      long prevS0 = 0;
+      long prevS1 = 0;
+      long s0 = 0;
+      long s1 = 0;
+      long t0 = 0;
+      long t1 = 0;
+      for (int w = 0; w <= words; w++) {
+        long nextS0 = 0;
+        long nextS1 = 0;
+        long nextT0 = 0;
+        long nextT1 = 0;
+        if (w < words) {
+          long u = up >= 0 ? mines[up + w] : 0;
+          long m = mines[row + w];
+          long d = down >= 0 ? mines[down + w] : 0;
+          long ud = u ^ d;
+          nextT0 = ud;
+          nextT1 = u & d;
+          nextS0 = ud ^ m;
+          nextS1 = (u & d) | (m & ud);
+        }
+        if (w > 0) {
+          // West neighbour of column x is column x - 1, east neighbour is x + 1.
+          long a0 = (s0 << 1) | (prevS0 >>> 63);
+          long a1 = (s1 << 1) | (prevS1 >>> 63);
+          long b0 = (s0 >>> 1) | (nextS0 << 63);
+          long b1 = (s1 >>> 1) | (nextS1 << 63);
+
+          long r0 = a0 ^ b0;
+          long k0 = a0 & b0;
+          long r1 = a1 ^ b1 ^ k0;
+          long r2 = (a1 & b1) | (k0 & (a1 ^ b1));
+
+          long q0 = r0 ^ t0;
+          long k1 = r0 & t0;
+          long q1 = r1 ^ t1 ^ k1;
+          long k2 = (r1 & t1) | (k1 & (r1 ^ t1));
+          long q2 = r2 ^ k2;
+          long q3 = r2 & k2;
+
+          int i = row + w - 1;
+          long inside = valid[w - 1];
+          p0[i] = q0 & inside;
+          p1[i] = q1 & inside;
+          p2[i] = q2 & inside;
+          p3[i] = q3 & inside;
+          zero[i] = ~(q0 | q1 | q2 | q3) & ~mines[i] & inside;
+        }
+        prevS0 = s0;
+        prevS1 = s1;
+        s0 = nextS0;
+        s1 = nextS1;
+        t0 = nextT0;
+        t1 = nextT1;
+      }
+    }
+  }
+
+  public int count(int x, int y) {
+    int i = y * words + (x >>> 6);
+    int bit = x & 63;
+    return (int) ((planes[0][i] >>> bit) & 1)
+        | (int) ((planes[1][i] >>> bit) & 1) << 1
+        | (int) ((planes[2][i] >>> bit) & 1) << 2
+        | (int) ((planes[3][i] >>> bit) & 1) << 3;
+  }
+
+  /** Writes every cell's count into {@code counts}, indexed like {@link Board}. */
+  public void copyCounts(byte[] counts) {
+    for (int y = 0; y < height; y++) {
+      for (int w = 0; w < words; w++) {
+        int i = y * words + w;
+        long c0 = planes[0][i];
+        long c1 = planes[1][i];
+        long c2 = planes[2][i];
+        long c3 = planes[3][i];
+        int base = y * width + (w << 6);
+        int end = Math.min(64, width - (w << 6));
+        if ((c0 | c1 | c2 | c3) == 0) {
+          Arrays.fill(counts, base, base + end, (byte) 0);
+          continue;
+        }
+        for (int bit = 0; bit < end; bit++) {
+          counts[base + bit] =
+              (byte)
+                  (((c0 >>> bit) & 1)
+                      | ((c1 >>> bit) & 1) << 1
+                      | ((c2 >>> bit) & 1) << 2
+                      | ((c3 >>> bit) & 1) << 3);
+        }
+      }
+    }
+  }
+
+  public long[] getZeroMask() {
+    return zero;
+  }
+
+  public long[] getMines() {
+    return mines;
+  }
+
+  public long[] getRevealed() {
+    return revealed;
+  }
+
+  public int getWords() {
+    return words;
+  }
+
+  /**
+   * Reveals a cell and the opening around it, returning the number of newly revealed cells. The
+   * opening is grown a whole row at a time: each row is flood filled within the zero mask, then
+   * seeded into the rows above and below, sweeping down and up until nothing changes.
+   */
+  public int reveal(int x, int y) {
+    int i = y * words + (x >>> 6);
+    long bit = 1L << x;
+    if ((revealed[i] & bit) != 0) {
+      return 0;
+    }
+    if ((zero[i] & bit) == 0) {
+      revealed[i] |= bit;
+      return 1;
+    }
+
+    region[i] = bit;
+    fillRow(region, y);
+    int top = y;
+    int bottom = y;
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (int row = Math.max(1, top); row < height; row++) {
+        if (!seedRow(region, row, row - 1)) {
+          if (row > bottom) {
+            break;
+          }
+          continue;
+        }
+        changed = true;
+        bottom = Math.max(bottom, row);
+      }
+      for (int row = Math.min(height - 2, bottom); row >= 0; row--) {
+        if (!seedRow(region, row, row + 1)) {
+          if (row < top) {
+            break;
+          }
+          continue;
+        }
+        changed = true;
+        top = Math.min(top, row);
+      }
+    }
+
+    // The opening is every zero cell reached plus the numbered cells bordering it.
+    int newlyRevealed = 0;
+    for (int row = Math.max(0, top - 1); row <= Math.min(height - 1, bottom + 1); row++) {
+      int base = row * words;
+      for (int w = 0; w < words; w++) {
+        long border = dilateRow(region, row, w);
+        if (row > 0) {
+          border |= dilateRow(region, row - 1, w);
+        }
+        if (row < height - 1) {
+          border |= dilateRow(region, row + 1, w);
+        }
+        long add = border & ~mines[base + w] & valid[w] & ~revealed[base + w];
+        revealed[base + w] |= add;
+        newlyRevealed += Long.bitCount(add);
+      }
+    }
+    Arrays.fill(region, top * words, (bottom + 1) * words, 0);
+    return newlyRevealed;
+  }
+
+  // Cells of row w that are in the region or horizontally next to it.
+  private long dilateRow(long[] region, int row, int w) {
+    int base = row * words;
+    long r = region[base + w];
+    long prev = w > 0 ? region[base + w - 1] : 0;
+    long next = w < words - 1 ? region[base + w + 1] : 0;
+    return r | (r << 1) | (prev >>> 63) | (r >>> 1) | (next << 63);
+  }
+
+  // Adds zero cells of row that touch the region in row from, then fills the row. True if grown.
+  private boolean seedRow(long[] region, int row, int from) {
+    int base = row * words;
+    boolean grown = false;
+    for (int w = 0; w < words; w++) {
+      long seed = dilateRow(region, from, w) & zero[base + w] & ~region[base + w];
+      if (seed != 0) {
+        region[base + w] |= seed;
+        grown = true;
+      }
+    }
+    if (grown) {
+      fillRow(region, row);
+    }
+    return grown;
+  }
+
+  // Kogge-Stone occluded fill of the region along the row, in both directions, within zero.
+  private void fillRow(long[] region, int row) {
+    int base = row * words;
+    long carry = 0;
+    for (int w = 0; w < words; w++) {
+      long open = zero[base + w];
+      long g = region[base + w] | (carry & open & 1L);
+      g = fill(g, open, true);
+      region[base + w] = g;
+      carry = (g >>> 63) & 1L;
+    }
+    carry = 0;
+    for (int w = words - 1; w >= 0; w--) {
+      long open = zero[base + w];
+      long g = region[base + w] | (carry & open & Long.MIN_VALUE);
+      g = fill(g, open, false);
+      region[base + w] = g;
+      carry = g << 63;
+    }
+  }
+
+  private static long fill(long g, long p, boolean up) {
+    if (up) {
+      g |= p & (g << 1);
+      p &= p << 1;
+      g |= p & (g << 2);
+      p &= p << 2;
+      g |= p & (g << 4);
+      p &= p << 4;
+      g |= p & (g << 8);
+      p &= p << 8;
+      g |= p & (g << 16);
+      p &= p << 16;
+      g |= p & (g << 32);
+    } else {
+      g |= p & (g >>> 1);
+      p &= p >>> 1;
+      g |= p & (g >>> 2);
+      p &= p >>> 2;
+      g |= p & (g >>> 4);
+      p &= p >>> 4;
+      g |= p & (g >>> 8);
+      p &= p >>> 8;
+      g |= p & (g >>> 16);
+      p &= p >>> 16;
+      g |= p & (g >>> 32);
+    }
+    return g;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+}
@@ -0,0 +1,299 @@
+package minesweeper;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Game state for one board, stored as flat arrays indexed by {@code y * width + x}. Neighbour
+ * lookups go through the table built by the board's {@link Topology}, so counting, flood fill and
+ * the win check never allocate.
+ */
+public class Board {
+  private final int width;
+  private final int height;
+  private final Topology topology;
+  private final int[] neighbourStart;
+  private final int[] neighbours;
+
+  private final boolean[] mines;
+  private final boolean[] revealed;
+  private final boolean[] flagged;
+  private final byte[] counts;
+  private final int[] queue;
+  private final int[] revealLog;
+  private int revealLogLength;
+  private int mineCount;
+  private int revealedSafe;
+  private int triggeredMine = -1;
+  private int dirtyMinX;
+  private int dirtyMinY;
+  private int dirtyMaxX;
+  private int dirtyMaxY;
+
+  public Board(int width, int height, Topology topology) {
+    this.width = width;
+    this.height = height;
+    this.topology = topology;
+    int[][] table = topology.buildNeighbours(width, height);
+    this.neighbourStart = table[0];
+    this.neighbours = table[1];
+    int cellCount = width * height;
+    this.mines = new boolean[cellCount];
+    this.revealed = new boolean[cellCount];
+    this.flagged = new boolean[cellCount];
+    this.counts = new byte[cellCount];
+    this.queue = new int[cellCount];
+    this.revealLog = new int[cellCount];
+    markAllDirty();
+  }
+
+  public void clear() {
+    Arrays.fill(mines, false);
+    Arrays.fill(revealed, false);
+    Arrays.fill(flagged, false);
+    Arrays.fill(counts, (byte) 0);
+    mineCount = 0;
+    revealedSafe = 0;
+    revealLogLength = 0;
+    triggeredMine = -1;
+    markAllDirty();
+  }
+
+  /** Hides every cell again, keeping the mines. */
+  public void hideAll() {
+    Arrays.fill(revealed, false);
+    Arrays.fill(flagged, false);
+    revealedSafe = 0;
+    revealLogLength = 0;
+    triggeredMine = -1;
+    markAllDirty();
+  }
+
+  public void placeMines(int count, Random random) {
+    int cellCount = mines.length;
+    while (mineCount < count) {
+      setMine(random.nextInt(cellCount));
+    }
+  }
+
+  /**
+   * Lays out the same mines as {@link #placeMines(int, Random)} on a board with none yet, but adds
+   * up the neighbour counts in one pass over {@code bits}, 64 cells at a time. Square boards only;
+   * {@code bits} must be the board's size and is overwritten.
+   */
+  public void placeMines(int count, Random random, BitBoard bits) {
+    if (topology != Topology.SQUARE || bits.getWidth() != width || bits.getHeight() != height) {
+      throw new IllegalArgumentException(
+          "Bitboard counts need a square " + width + "x" + height + " bitboard");
+    }
+    if (mineCount != 0) {
+      throw new IllegalStateException("Board already has mines");
+    }
+    bits.clear();
+    int cellCount = mines.length;
+    while (mineCount < count) {
+      int index = random.nextInt(cellCount);
+      if (!mines[index]) {
+        mines[index] = true;
+        mineCount++;
+        bits.setMine(index % width, index / width);
+      }
+    }
+    bits.computeCounts();
+    bits.copyCounts(counts);
+  }
+
+  /** Puts a mine on one cell, for laying out a known board. Does nothing if it has one. */
+  public void setMine(int index) {
+    if (!mines[index]) {
+      mines[index] = true;
+      mineCount++;
+      for (int k = neighbourStart[index]; k < neighbourStart[index + 1]; k++) {
+        counts[neighbours[k]]++;
+      }
+    }
+  }
+
+  /**
+   * Reveals a cell and, if it has no adjacent mines, the whole opening around it. Flagged and
+   * already revealed cells are left alone. Returns the number of cells revealed.
+   */
+  public int reveal(int index) {
+    triggeredMine = -1;
+    if (revealed[index] || flagged[index]) {
+      return 0;
+    }
+    return 1 + flood(revealCell(index, 0));
+  }
+
+  /**
+   * Chords on a revealed number: if as many neighbours are flagged as the number says, every other
+   * hidden neighbour is revealed in one pass that shares a single flood-fill queue. Returns the
+   * number of cells revealed, which is 0 when the flags do not match.
+   */
+  public int chord(int index) {
+    triggeredMine = -1;
+    if (!revealed[index] || mines[index] || counts[index] == 0) {
+      return 0;
+    }
+    int flags = 0;
+    for (int k = neighbourStart[index]; k < neighbourStart[index + 1]; k++) {
+      if (flagged[neighbours[k]]) {
+        flags++;
+      }
+    }
+    if (flags != counts[index]) {
+      return 0;
+    }
+
+    int revealedCount = 0;
+    int tail = 0;
+    for (int k = neighbourStart[index]; k < neighbourStart[index + 1]; k++) {
+      int next = neighbours[k];
+      if (!revealed[next] && !flagged[next]) {
+        tail = revealCell(next, tail);
+        revealedCount++;
+      }
+    }
+    return revealedCount + flood(tail);
+  }
+
+  private int revealCell(int index, int tail) {
+    revealed[index] = true;
+    revealLog[revealLogLength++] = index;
+    if (mines[index]) {
+      triggeredMine = index;
+    } else {
+      revealedSafe++;
+      if (counts[index] == 0) {
+        queue[tail++] = index;
+      }
+    }
+    return tail;
+  }
+
+  private int flood(int tail) {
+    int revealedCount = 0;
+    int head = 0;
+    while (head < tail) {
+      int cell = queue[head++];
+      for (int k = neighbourStart[cell]; k < neighbourStart[cell + 1]; k++) {
+        int next = neighbours[k];
+        if (!revealed[next] && !flagged[next]) {
+          tail = revealCell(next, tail);
+          revealedCount++;
+        }
+      }
+    }
+    return revealedCount;
+  }
+
+  public void toggleFlag(int index) {
+    if (!revealed[index]) {
+      flagged[index] = !flagged[index];
+      markDirty(index);
+    }
+  }
+
+  public void markDirty(int index) {
+    int x = index % width;
+    int y = index / width;
+    dirtyMinX = Math.min(dirtyMinX, x);
+    dirtyMinY = Math.min(dirtyMinY, y);
+    dirtyMaxX = Math.max(dirtyMaxX, x);
+    dirtyMaxY = Math.max(dirtyMaxY, y);
+  }
+
+  public void markAllDirty() {
+    dirtyMinX = 0;
+    dirtyMinY = 0;
+    dirtyMaxX = width - 1;
+    dirtyMaxY = height - 1;
+  }
+
+  /**
+   * Returns the bounding box {minX, minY, maxX, maxY} of every cell flagged, unflagged or reset
+   * since the last call, or null if nothing changed. Reveals are not included; they are read
+   * from {@link #getRevealLog} instead.
+   */
+  public int[] takeDirtyRegion() {
+    if (dirtyMinX > dirtyMaxX) {
+      return null;
+    }
+    int[] region = {dirtyMinX, dirtyMinY, dirtyMaxX, dirtyMaxY};
+    dirtyMinX = width;
+    dirtyMinY = height;
+    dirtyMaxX = -1;
+    dirtyMaxY = -1;
+    return region;
+  }
+
+  public boolean isCleared() {
+    return revealedSafe == mines.length - mineCount;
+  }
+
+  /**
+   * Every cell revealed since the board was cleared, in the order it was revealed; only the first
+   * {@link #getRevealLogLength} entries are valid. Flood fills append in breadth-first order.
+   */
+  public int[] getRevealLog() {
+    return revealLog;
+  }
+
+  public int getRevealLogLength() {
+    return revealLogLength;
+  }
+
+  /** The mine uncovered by the last {@link #reveal} or {@link #chord}, or -1. */
+  public int getTriggeredMine() {
+    return triggeredMine;
+  }
+
+  public int index(int x, int y) {
+    return y * width + x;
+  }
+
+  public boolean hasMine(int index) {
+    return mines[index];
+  }
+
+  public boolean isRevealed(int index) {
+    return revealed[index];
+  }
+
+  public boolean isFlagged(int index) {
+    return flagged[index];
+  }
+
+  public int countAdjacentMines(int index) {
+    return counts[index];
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public int cellCount() {
+    return mines.length;
+  }
+
+  public int getMineCount() {
+    return mineCount;
+  }
+
+  public Topology getTopology() {
+    return topology;
+  }
+
+  public int[] getNeighbourStart() {
+    return neighbourStart;
+  }
+
+  public int[] getNeighbours() {
+    return neighbours;
+  }
+}
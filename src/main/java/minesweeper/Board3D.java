@@ -0,0 +1,318 @@
+package minesweeper;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Game state for a stack of {@code depth} square layers, where a cell touches the up to 26 cells
+ * around it in its own layer and in the layers above and below. Every cell is one byte, indexed
+ * by {@code (z * height + y) * width + x}: the low five bits hold the adjacent mine count, the top
+ * three the mine, revealed and flagged bits. Neighbours are found by offset instead of through a
+ * table, so a 256x256x256 board needs 16 MB and counting and flood fill never allocate per cell.
+ */
+public class Board3D {
+  private static final int COUNT = 0x1F;
+  private static final int MINE = 0x20;
+  private static final int REVEALED = 0x40;
+  private static final int FLAGGED = 0x80;
+
+  private final int width;
+  private final int height;
+  private final int depth;
+  private final int layerSize;
+  private final byte[] cells;
+  private final byte[] rowSums;
+  private final byte[][] layerSums;
+  private int[] queue = new int[1024];
+  private int queueHead;
+  private int queueSize;
+  private int mineCount;
+  private int revealedSafe;
+  private int triggeredMine = -1;
+  private final int[] dirty = new int[6];
+
+  public Board3D(int width, int height, int depth) {
+    this.width = width;
+    this.height = height;
+    this.depth = depth;
+    this.layerSize = width * height;
+    this.cells = new byte[layerSize * depth];
+    this.rowSums = new byte[layerSize];
+    this.layerSums = new byte[3][layerSize];
+    markAllDirty();
+  }
+
+  public void clear() {
+    Arrays.fill(cells, (byte) 0);
+    mineCount = 0;
+    revealedSafe = 0;
+    triggeredMine = -1;
+    markAllDirty();
+  }
+
+  /** Hides every cell again, keeping the mines. */
+  public void hideAll() {
+    for (int i = 0; i < cells.length; i++) {
+      cells[i] &= COUNT | MINE;
+    }
+    revealedSafe = 0;
+    triggeredMine = -1;
+    markAllDirty();
+  }
+
+  public void placeMines(int count, Random random) {
+    while (mineCount < count) {
+      int index = random.nextInt(cells.length);
+      if ((cells[index] & MINE) == 0) {
+        cells[index] |= MINE;
+        mineCount++;
+      }
+    }
+    computeCounts();
+  }
+
+  // The 3x3x3 box sum is separable: sums along x, then y within each layer, then across three
+  // consecutive layers. Only three layers of partial sums are kept, so every pass streams
+  // through memory in index order.
+  private void computeCounts() {
+    for (int z = 0; z < depth; z++) {
+      sumLayer(z, layerSums[z % 3]);
+      if (z > 0) {
+        finishLayer(z - 1, z > 1 ? layerSums[(z - 2) % 3] : null, layerSums[z % 3]);
+      }
+    }
+    finishLayer(depth - 1, depth > 1 ? layerSums[(depth - 2) % 3] : null, null);
+  }
+
+  private void sumLayer(int z, byte[] out) {
+    int base = z * layerSize;
+    for (int row = 0; row < layerSize; row += width) {
+      int left = 0;
+      int mid = cells[base + row] >> 5 & 1;
+      for (int x = 0; x < width; x++) {
+        int right = x + 1 < width ? cells[base + row + x + 1] >> 5 & 1 : 0;
+        rowSums[row + x] = (byte) (left + mid + right);
+        left = mid;
+        mid = right;
+      }
+    }
+    for (int row = 0; row < layerSize; row += width) {
+      for (int x = 0; x < width; x++) {
+        int sum = rowSums[row + x];
+        if (row > 0) {
+          sum += rowSums[row - width + x];
+        }
+        if (row + width < layerSize) {
+          sum += rowSums[row + width + x];
+        }
+        out[row + x] = (byte) sum;
+      }
+    }
+  }
+
+  private void finishLayer(int z, byte[] below, byte[] above) {
+    byte[] mid = layerSums[z % 3];
+    int base = z * layerSize;
+    for (int i = 0; i < layerSize; i++) {
+      int cell = cells[base + i];
+      int sum = mid[i] - (cell >> 5 & 1);
+      if (below != null) {
+        sum += below[i];
+      }
+      if (above != null) {
+        sum += above[i];
+      }
+      cells[base + i] = (byte) (cell & ~COUNT | sum);
+    }
+  }
+
+  /**
+   * Reveals a cell and, if it has no adjacent mines, the whole opening around it. Flagged and
+   * already revealed cells are left alone. Returns the number of cells revealed.
+   */
+  public int reveal(int index) {
+    triggeredMine = -1;
+    if ((cells[index] & (REVEALED | FLAGGED)) != 0) {
+      return 0;
+    }
+    revealCell(index, index % width, index / width % height, index / layerSize);
+    return 1 + flood();
+  }
+
+  /**
+   * Chords on a revealed number: if as many neighbours are flagged as the number says, every other
+   * hidden neighbour is revealed. Returns the number of cells revealed, which is 0 when the flags
+   * do not match.
+   */
+  public int chord(int index) {
+    triggeredMine = -1;
+    int cell = cells[index];
+    if ((cell & (REVEALED | MINE)) != REVEALED || (cell & COUNT) == 0) {
+      return 0;
+    }
+    int x = index % width;
+    int y = index / width % height;
+    int z = index / layerSize;
+    int flags = 0;
+    for (int nz = Math.max(z - 1, 0); nz <= Math.min(z + 1, depth - 1); nz++) {
+      for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, height - 1); ny++) {
+        int row = (nz * height + ny) * width;
+        for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, width - 1); nx++) {
+          if ((cells[row + nx] & FLAGGED) != 0) {
+            flags++;
+          }
+        }
+      }
+    }
+    if (flags != (cell & COUNT)) {
+      return 0;
+    }
+    return revealAround(x, y, z) + flood();
+  }
+
+  private int flood() {
+    int revealedCount = 0;
+    while (queueSize > 0) {
+      int cell = queue[queueHead];
+      queueHead = (queueHead + 1) & (queue.length - 1);
+      queueSize--;
+      revealedCount += revealAround(cell % width, cell / width % height, cell / layerSize);
+    }
+    return revealedCount;
+  }
+
+  private int revealAround(int x, int y, int z) {
+    int revealedCount = 0;
+    for (int nz = Math.max(z - 1, 0); nz <= Math.min(z + 1, depth - 1); nz++) {
+      for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, height - 1); ny++) {
+        int row = (nz * height + ny) * width;
+        for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, width - 1); nx++) {
+          if ((cells[row + nx] & (REVEALED | FLAGGED)) == 0) {
+            revealCell(row + nx, nx, ny, nz);
+            revealedCount++;
+          }
+        }
+      }
+    }
+    return revealedCount;
+  }
+
+  private void revealCell(int index, int x, int y, int z) {
+    cells[index] |= REVEALED;
+    markDirty(x, y, z);
+    if ((cells[index] & MINE) != 0) {
+      triggeredMine = index;
+    } else {
+      revealedSafe++;
+      if ((cells[index] & COUNT) == 0) {
+        enqueue(index);
+      }
+    }
+  }
+
+  // The flood fill only ever holds its frontier, so the queue is a ring that grows on demand
+  // instead of an int per cell.
+  private void enqueue(int index) {
+    if (queueSize == queue.length) {
+      int[] grown = new int[queue.length * 2];
+      for (int i = 0; i < queueSize; i++) {
+        grown[i] = queue[(queueHead + i) & (queue.length - 1)];
+      }
+      queue = grown;
+      queueHead = 0;
+    }
+    queue[(queueHead + queueSize++) & (queue.length - 1)] = index;
+  }
+
+  public void toggleFlag(int index) {
+    if ((cells[index] & REVEALED) == 0) {
+      cells[index] ^= FLAGGED;
+      markDirty(index % width, index / width % height, index / layerSize);
+    }
+  }
+
+  private void markDirty(int x, int y, int z) {
+    dirty[0] = Math.min(dirty[0], x);
+    dirty[1] = Math.min(dirty[1], y);
+    dirty[2] = Math.min(dirty[2], z);
+    dirty[3] = Math.max(dirty[3], x);
+    dirty[4] = Math.max(dirty[4], y);
+    dirty[5] = Math.max(dirty[5], z);
+  }
+
+  public void markAllDirty() {
+    dirty[0] = 0;
+    dirty[1] = 0;
+    dirty[2] = 0;
+    dirty[3] = width - 1;
+    dirty[4] = height - 1;
+    dirty[5] = depth - 1;
+  }
+
+  /**
+   * Returns the bounding box {minX, minY, minZ, maxX, maxY, maxZ} of every cell revealed,
+   * flagged, unflagged or reset since the last call, or null if nothing changed.
+   */
+  public int[] takeDirtyRegion() {
+    if (dirty[0] > dirty[3]) {
+      return null;
+    }
+    int[] region = dirty.clone();
+    dirty[0] = width;
+    dirty[1] = height;
+    dirty[2] = depth;
+    dirty[3] = -1;
+    dirty[4] = -1;
+    dirty[5] = -1;
+    return region;
+  }
+
+  public boolean isCleared() {
+    return revealedSafe == cells.length - mineCount;
+  }
+
+  /** The mine uncovered by the last {@link #reveal} or {@link #chord}, or -1. */
+  public int getTriggeredMine() {
+    return triggeredMine;
+  }
+
+  public int index(int x, int y, int z) {
+    return (z * height + y) * width + x;
+  }
+
+  public boolean hasMine(int index) {
+    return (cells[index] & MINE) != 0;
+  }
+
+  public boolean isRevealed(int index) {
+    return (cells[index] & REVEALED) != 0;
+  }
+
+  public boolean isFlagged(int index) {
+    return (cells[index] & FLAGGED) != 0;
+  }
+
+  public int countAdjacentMines(int index) {
+    return cells[index] & COUNT;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  public int cellCount() {
+    return cells.length;
+  }
+
+  public int getMineCount() {
+    return mineCount;
+  }
+}
@@ -0,0 +1,269 @@
+package minesweeper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Difficulty metrics for a board: 3BV (the minimum number of clicks needed to clear it), the
+ * number of openings, the number of islands of numbered cells not touching an opening, and how
+ * often a simple solver has to guess. One analyzer is reused across boards of the same size.
+ */
+public class BoardAnalyzer {
+
+  public static final String CSV_HEADER =
+      "seed,width,height,mines,topology,3bv,openings,islands,guesses";
+
+  public static class Result {
+    public final int bbbv;
+    public final int openings;
+    public final int islands;
+    public final int guesses;
+
+    Result(int bbbv, int openings, int islands, int guesses) {
+      this.bbbv = bbbv;
+      this.openings = openings;
+      this.islands = islands;
+      this.guesses = guesses;
+    }
+  }
+
+  private final int[] parent;
+  private final boolean[] bordered;
+  private final int[] work;
+  private final boolean[] queued;
+  private int openings;
+  private int isolated;
+  private int islands;
+
+  public BoardAnalyzer(int cellCount) {
+    this.parent = new int[cellCount];
+    this.bordered = new boolean[cellCount];
+    this.work = new int[cellCount];
+    this.queued = new boolean[cellCount];
+  }
+
+  /** Analyzes the board's mine layout. The board's revealed and flagged state is reset. */
+  public Result analyze(Board board) {
+    scan(board);
+    return new Result(openings + isolated, openings, islands, countGuesses(board));
+  }
+
+  /** Returns the board's 3BV without touching its revealed and flagged state. */
+  public int bbbv(Board board) {
+    scan(board);
+    return openings + isolated;
+  }
+
+  private void scan(Board board) {
+    int[] start = board.getNeighbourStart();
+    int[] neighbours = board.getNeighbours();
+    openings = 0;
+    isolated = 0;
+    islands = 0;
+
+    // One pass in index order. Neighbours with a lower index are already final, so each edge is
+    // unioned once: zero cells join into openings, unbordered numbers join into islands.
+    for (int i = 0; i < parent.length; i++) {
+      parent[i] = i;
+      bordered[i] = false;
+      if (board.hasMine(i)) {
+        continue;
+      }
+      boolean zero = board.countAdjacentMines(i) == 0;
+      if (!zero) {
+        for (int k = start[i]; k < start[i + 1]; k++) {
+          int j = neighbours[k];
+          if (!board.hasMine(j) && board.countAdjacentMines(j) == 0) {
+            bordered[i] = true;
+            break;
+          }
+        }
+        if (bordered[i]) {
+          continue;
+        }
+        isolated++;
+        islands++;
+      } else {
+        openings++;
+      }
+      for (int k = start[i]; k < start[i + 1]; k++) {
+        int j = neighbours[k];
+        if (j >= i || board.hasMine(j) || bordered[j]) {
+          continue;
+        }
+        if ((board.countAdjacentMines(j) == 0) == zero && union(i, j)) {
+          if (zero) {
+            openings--;
+          } else {
+            islands--;
+          }
+        }
+      }
+    }
+  }
+
+  private int find(int i) {
+    while (parent[i] != i) {
+      parent[i] = parent[parent[i]];
+      i = parent[i];
+    }
+    return i;
+  }
+
+  private boolean union(int a, int b) {
+    int ra = find(a);
+    int rb = find(b);
+    if (ra == rb) {
+      return false;
+    }
+    parent[Math.max(ra, rb)] = Math.min(ra, rb);
+    return true;
+  }
+
+  /**
+   * Plays the board with single-point deduction only: a number whose flags are all placed has its
+   * other neighbours revealed, and a number with exactly as many hidden neighbours as missing
+   * flags has them all flagged. Every time that gets stuck counts as a guess, so the result is an
+   * upper bound on the guesses a full solver would need. Starting on an opening is free.
+   */
+  private int countGuesses(Board board) {
+    board.hideAll();
+    int[] start = board.getNeighbourStart();
+    int[] neighbours = board.getNeighbours();
+    int[] log = board.getRevealLog();
+    int guesses = 0;
+    int next = 0;
+    int firstOpening = -1;
+    for (int i = 0; i < parent.length && firstOpening < 0; i++) {
+      if (!board.hasMine(i) && board.countAdjacentMines(i) == 0) {
+        firstOpening = i;
+      }
+    }
+    int seen = 0;
+    int size = 0;
+    if (firstOpening >= 0) {
+      board.reveal(firstOpening);
+    }
+
+    while (!board.isCleared()) {
+      // Newly revealed cells, and the numbers around them, may allow new deductions.
+      for (; seen < board.getRevealLogLength(); seen++) {
+        int cell = log[seen];
+        size = push(cell, size);
+        for (int k = start[cell]; k < start[cell + 1]; k++) {
+          if (board.isRevealed(neighbours[k])) {
+            size = push(neighbours[k], size);
+          }
+        }
+      }
+      if (size == 0) {
+        while (board.hasMine(next) || board.isRevealed(next) || board.isFlagged(next)) {
+          next++;
+        }
+        guesses++;
+        board.reveal(next);
+        continue;
+      }
+      int cell = work[--size];
+      queued[cell] = false;
+      int count = board.countAdjacentMines(cell);
+      if (count == 0) {
+        continue;
+      }
+      int hidden = 0;
+      int flags = 0;
+      for (int k = start[cell]; k < start[cell + 1]; k++) {
+        int j = neighbours[k];
+        if (board.isFlagged(j)) {
+          flags++;
+        } else if (!board.isRevealed(j)) {
+          hidden++;
+        }
+      }
+      if (hidden == 0) {
+        continue;
+      }
+      if (flags == count) {
+        board.chord(cell);
+      } else if (count - flags == hidden) {
+        for (int k = start[cell]; k < start[cell + 1]; k++) {
+          int j = neighbours[k];
+          if (!board.isRevealed(j) && !board.isFlagged(j)) {
+            board.toggleFlag(j);
+            for (int m = start[j]; m < start[j + 1]; m++) {
+              if (board.isRevealed(neighbours[m])) {
+                size = push(neighbours[m], size);
+              }
+            }
+          }
+        }
+      }
+    }
+    for (int i = 0; i < size; i++) {
+      queued[work[i]] = false;
+    }
+    board.hideAll();
+    return guesses;
+  }
+
+  private int push(int cell, int size) {
+    if (!queued[cell]) {
+      queued[cell] = true;
+      work[size++] = cell;
+    }
+    return size;
+  }
+
+  /**
+   * Streams seeded boards through the analyzer on all cores and writes one CSV row per board to
+   * stdout, in seed order. Takes the options of {@link BatchOptions}; 1000 boards by default.
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    BatchOptions options = BatchOptions.fromArgs(args, 1000);
+    BoardConfig config = options.config;
+    long boards = options.boards;
+    ThreadLocal<Board> boardPerThread = options.boardPerThread();
+    ThreadLocal<BoardAnalyzer> analyzerPerThread =
+        ThreadLocal.withInitial(() -> new BoardAnalyzer(config.getWidth() * config.getHeight()));
+    long startTime = System.nanoTime();
+    Writer out =
+        new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+    out.write(CSV_HEADER);
+    out.write('\n');
+    try {
+      options.forEachChunk(
+          256,
+          (first, last) ->
+              analyzeRange(boardPerThread.get(), analyzerPerThread.get(), options, first, last),
+          out::write);
+    } finally {
+      out.flush();
+    }
+    double seconds = (System.nanoTime() - startTime) / 1e9;
+    System.err.printf(
+        "%d boards in %.2f s (%.0f boards/hour)%n", boards, seconds, boards / seconds * 3600);
+  }
+
+  private static String analyzeRange(
+      Board board, BoardAnalyzer analyzer, BatchOptions options, long first, long last) {
+    BoardConfig config = options.config;
+    StringBuilder csv = new StringBuilder();
+    for (long seed = first; seed < last; seed++) {
+      options.deal(board, seed);
+      Result r = analyzer.analyze(board);
+      csv.append(seed).append(',');
+      csv.append(config.getWidth()).append(',');
+      csv.append(config.getHeight()).append(',');
+      csv.append(config.getMines()).append(',');
+      csv.append(config.getTopology()).append(',');
+      csv.append(r.bbbv).append(',');
+      csv.append(r.openings).append(',');
+      csv.append(r.islands).append(',');
+      csv.append(r.guesses).append('\n');
+    }
+    return csv.toString();
+  }
+}
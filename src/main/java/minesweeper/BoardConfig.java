@@ -0,0 +1,266 @@
+package minesweeper;
+
+import java.awt.GraphicsEnvironment;
+import java.awt.HeadlessException;
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+public class BoardConfig {
+
+  public static final int MIN_SIZE = 2;
+  public static final int MAX_CELLS = 1 << 24;
+  public static final int MIN_CELLSIZE = 1;
+  public static final int MAX_CELLSIZE = 128;
+  public static final int MAX_DEPTH = 256;
+  // Largest window side in pixels; the board layer is an ARGB image of about this size.
+  public static final int MAX_WINDOW_SIZE = 8192;
+  // Screen area assumed when there is no display, e.g. for the batch tools.
+  private static final int DEFAULT_DISPLAY_WIDTH = 1920;
+  private static final int DEFAULT_DISPLAY_HEIGHT = 1080;
+
+  public enum Preset {
+    BEGINNER(9, 9, 32, 10),
+    INTERMEDIATE(16, 16, 32, 40),
+    EXPERT(30, 16, 32, 99),
+    CLASSIC(27, 18, 32, 100);
+
+    private final int width;
+    private final int height;
+    private final int cellSize;
+    private final int mines;
+
+    Preset(int width, int height, int cellSize, int mines) {
+      this.width = width;
+      this.height = height;
+      this.cellSize = cellSize;
+      this.mines = mines;
+    }
+
+    public BoardConfig toConfig(Topology topology) {
+      return new BoardConfig(width, height, cellSize, mines, topology);
+    }
+  }
+
+  private final int width;
+  private final int height;
+  private final int cellSize;
+  private final int mines;
+  private final Topology topology;
+  private final int depth;
+
+  public BoardConfig(int width, int height, int cellSize, int mines, Topology topology) {
+    this(width, height, cellSize, mines, topology, 1);
+  }
+
+  /** A {@code depth} above 1 makes a layered 3D board, which only exists for square cells. */
+  public BoardConfig(
+      int width, int height, int cellSize, int mines, Topology topology, int depth) {
+    if (width < MIN_SIZE || height < MIN_SIZE || (long) width * height * depth > MAX_CELLS) {
+      throw new IllegalArgumentException("Invalid board size " + width + "x" + height);
+    }
+    if (depth < 1 || depth > MAX_DEPTH || (depth > 1 && topology != Topology.SQUARE)) {
+      throw new IllegalArgumentException("Invalid depth " + depth + " for " + topology);
+    }
+    if (cellSize < MIN_CELLSIZE || cellSize > MAX_CELLSIZE) {
+      throw new IllegalArgumentException("Invalid cell size " + cellSize);
+    }
+    if (!fitsWindow(width, height, cellSize, topology)) {
+      throw new IllegalArgumentException(
+          "Board " + width + "x" + height + " at cell size " + cellSize + " is too large");
+    }
+    if (mines <= 0 || mines >= width * height * depth) {
+      throw new IllegalArgumentException("Invalid mine count " + mines);
+    }
+    this.width = width;
+    this.height = height;
+    this.cellSize = cellSize;
+    this.mines = mines;
+    this.topology = topology;
+    this.depth = depth;
+  }
+
+  /**
+   * Builds a config from command line arguments. A bare number is the mine count, as before;
+   * everything else is {@code --key=value} with the same keys as a config file, and {@code
+   * --config=path} loads a properties file whose values later arguments can override.
+   */
+  public static BoardConfig fromArgs(String[] args) {
+    Properties props = new Properties();
+    if (args != null) {
+      for (String arg : args) {
+        if (arg.startsWith("--") && arg.indexOf('=') > 2) {
+          String key = arg.substring(2, arg.indexOf('='));
+          String value = arg.substring(arg.indexOf('=') + 1);
+          if (key.equals("config")) {
+            loadFile(props, value);
+          } else {
+            props.setProperty(key, value);
+          }
+        } else if (!props.containsKey("mines")) {
+          props.setProperty("mines", arg);
+        }
+      }
+    }
+    return fromProperties(props);
+  }
+
+  /**
+   * Reads {@code preset}, {@code width}, {@code height}, {@code cellsize}, {@code mines},
+   * {@code density}, {@code topology} and {@code depth}. Missing or invalid values fall back to
+   * the preset, then to {@link Preset#CLASSIC}; a depth above 1 forces square cells. Without a
+   * cell size, the preset's is used unless the board would not fit on the screen, in which case
+   * cells shrink until it does.
+   */
+  public static BoardConfig fromProperties(Properties props) {
+    Preset preset = Preset.CLASSIC;
+    try {
+      preset = Preset.valueOf(props.getProperty("preset", preset.name()).toUpperCase());
+    } catch (IllegalArgumentException e) {
+    }
+    Topology topology = Topology.SQUARE;
+    try {
+      topology = Topology.valueOf(props.getProperty("topology", topology.name()).toUpperCase());
+    } catch (IllegalArgumentException e) {
+    }
+    int width = parseInt(props, "width", preset.width);
+    int height = parseInt(props, "height", preset.height);
+    if (width < MIN_SIZE
+        || height < MIN_SIZE
+        || (long) width * height > MAX_CELLS
+        || !fitsWindow(width, height, MIN_CELLSIZE, topology)) {
+      width = preset.width;
+      height = preset.height;
+    }
+    int depth = parseInt(props, "depth", 1);
+    if (depth < 1 || depth > MAX_DEPTH || (long) width * height * depth > MAX_CELLS) {
+      depth = 1;
+    }
+    if (depth > 1) {
+      topology = Topology.SQUARE;
+    }
+    int cellSize = parseInt(props, "cellsize", -1);
+    if (cellSize < MIN_CELLSIZE
+        || cellSize > MAX_CELLSIZE
+        || !fitsWindow(width, height, cellSize, topology)) {
+      cellSize = fitCellSize(width, height, preset.cellSize, topology);
+    }
+    int cells = width * height * depth;
+
+    int mines = Math.min(preset.mines, cells - 1);
+    if (props.containsKey("density")
+        || props.containsKey("width")
+        || props.containsKey("height")
+        || props.containsKey("depth")) {
+      double density =
+          parseDouble(props, "density", (double) preset.mines / (preset.width * preset.height));
+      mines = Math.max(1, Math.min(cells - 1, (int) Math.round(density * cells)));
+    }
+    int inputMines = parseInt(props, "mines", -1);
+    if (inputMines > 0 && inputMines < cells) {
+      mines = inputMines;
+    }
+    return new BoardConfig(width, height, cellSize, mines, topology, depth);
+  }
+
+  private static boolean fitsWindow(int width, int height, int cellSize, Topology topology) {
+    return fitsWindow(width, height, cellSize, topology, MAX_WINDOW_SIZE, MAX_WINDOW_SIZE);
+  }
+
+  private static boolean fitsWindow(
+      int width, int height, int cellSize, Topology topology, int maxWidth, int maxHeight) {
+    return (long) width * cellSize + topology.extraWidth(cellSize) <= maxWidth
+        && (long) height * cellSize + App.TOPBAR <= maxHeight;
+  }
+
+  // The largest cell size up to the preferred one at which the window fits on the screen.
+  private static int fitCellSize(int width, int height, int preferred, Topology topology) {
+    Rectangle screen = displayBounds();
+    int cellSize = preferred;
+    while (cellSize > MIN_CELLSIZE
+        && !fitsWindow(width, height, cellSize, topology, screen.width, screen.height)) {
+      cellSize--;
+    }
+    return cellSize;
+  }
+
+  private static Rectangle displayBounds() {
+    if (!GraphicsEnvironment.isHeadless()) {
+      try {
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds();
+      } catch (HeadlessException e) {
+        // No display after all.
+      }
+    }
+    return new Rectangle(DEFAULT_DISPLAY_WIDTH, DEFAULT_DISPLAY_HEIGHT);
+  }
+
+  private static void loadFile(Properties props, String path) {
+    try (Reader reader = Files.newBufferedReader(Paths.get(path))) {
+      props.load(reader);
+    } catch (IOException e) {
+      System.err.println("Could not read config " + path + ": " + e.getMessage());
+    }
+  }
+
+  private static int parseInt(Properties props, String key, int fallback) {
+    try {
+      return Integer.parseInt(props.getProperty(key, "").trim());
+    } catch (NumberFormatException e) {
+      return fallback;
+    }
+  }
+
+  private static double parseDouble(Properties props, String key, double fallback) {
+    try {
+      return Double.parseDouble(props.getProperty(key, "").trim());
+    } catch (NumberFormatException e) {
+      return fallback;
+    }
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public int getCellSize() {
+    return cellSize;
+  }
+
+  public int getMines() {
+    return mines;
+  }
+
+  public Topology getTopology() {
+    return topology;
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  public int cellCount() {
+    return width * height * depth;
+  }
+
+  public int windowWidth() {
+    return width * cellSize + topology.extraWidth(cellSize);
+  }
+
+  public int windowHeight() {
+    return height * cellSize + App.TOPBAR;
+  }
+
+  @Override
+  public String toString() {
+    String size = width + "x" + height + (depth > 1 ? "x" + depth : "");
+    return size + "/" + mines + "/" + topology;
+  }
+}
@@ -0,0 +1,153 @@
+package minesweeper;
+
+import processing.core.PConstants;
+
+/**
+ * Turns mouse and keyboard events into cell actions. Positions are mapped to a cell index once
+ * per event; actions are queued and applied at the start of the next frame, in order, so bursts
+ * of input (or actions queued by automation through {@link #enqueue}) cost nothing per frame
+ * beyond the cells they change.
+ *
+ * <p>The queue methods are synchronized, so other threads may call {@link #enqueue}. The hover,
+ * button and cursor state belongs to the sketch thread.
+ */
+public class BoardInput {
+  public static final int REVEAL = 0;
+  public static final int FLAG = 1;
+  public static final int CHORD = 2;
+
+  // Cell indices fit in 24 bits (see BoardConfig.MAX_CELLS); the action goes above them.
+  private static final int ACTION_SHIFT = 24;
+  private static final int CELL_MASK = (1 << ACTION_SHIFT) - 1;
+
+  private int[] queue = new int[64];
+  private int head;
+  private int size;
+  private int cellCount;
+  private int hovered = -1;
+  private int pressed = -1;
+  private int cursor = -1;
+  private boolean leftDown;
+  private boolean rightDown;
+
+  /** Drops queued actions and all state; cells from now on must be below {@code cellCount}. */
+  public synchronized void reset(int cellCount) {
+    this.cellCount = cellCount;
+    head = 0;
+    size = 0;
+    hovered = -1;
+    pressed = -1;
+    cursor = -1;
+  }
+
+  /** Returns true if the hovered cell changed. */
+  public boolean hover(int cell) {
+    if (cell == hovered) {
+      return false;
+    }
+    hovered = cell;
+    return true;
+  }
+
+  public void mousePressed(int button, int cell) {
+    if (button == PConstants.LEFT) {
+      leftDown = true;
+      pressed = cell;
+    } else if (button == PConstants.RIGHT) {
+      rightDown = true;
+    }
+    hover(cell);
+    if (cell < 0) {
+      return;
+    }
+    if (button == PConstants.CENTER || (leftDown && rightDown)) {
+      enqueue(CHORD, cell);
+    } else if (button == PConstants.LEFT) {
+      enqueue(REVEAL, cell);
+    } else if (button == PConstants.RIGHT) {
+      enqueue(FLAG, cell);
+    }
+  }
+
+  public void mouseReleased(int button) {
+    if (button == PConstants.LEFT) {
+      leftDown = false;
+      pressed = -1;
+    } else if (button == PConstants.RIGHT) {
+      rightDown = false;
+    }
+  }
+
+  /**
+   * Moves the keyboard cursor within its layer, starting from the hovered cell the first time.
+   * On a flat board the whole board is one layer.
+   */
+  public void moveCursor(int dx, int dy, int width, int height) {
+    if (cursor < 0) {
+      cursor = Math.max(hovered, 0);
+      return;
+    }
+    int layer = cursor - cursor % (width * height);
+    int x = Math.max(0, Math.min(width - 1, cursor % width + dx));
+    int y = Math.max(0, Math.min(height - 1, cursor / width % height + dy));
+    cursor = layer + y * width + x;
+  }
+
+  public void setCursor(int cell) {
+    cursor = cell;
+  }
+
+  /**
+   * Queues an action for the next frame. Throws {@link IllegalArgumentException} for an unknown
+   * action or a cell outside the board.
+   */
+  public synchronized void enqueue(int action, int cell) {
+    if (action < REVEAL || action > CHORD) {
+      throw new IllegalArgumentException("Unknown action " + action);
+    }
+    if (cell < 0 || cell >= cellCount) {
+      throw new IllegalArgumentException("Cell " + cell + " is not on the board");
+    }
+    if (size == queue.length) {
+      int[] grown = new int[queue.length * 2];
+      for (int i = 0; i < size; i++) {
+        grown[i] = queue[(head + i) % queue.length];
+      }
+      queue = grown;
+      head = 0;
+    }
+    queue[(head + size++) % queue.length] = action << ACTION_SHIFT | cell;
+  }
+
+  public synchronized boolean hasNext() {
+    return size > 0;
+  }
+
+  /** Removes the next queued action; unpack it with {@link #action} and {@link #cell}. */
+  public synchronized int next() {
+    int packed = queue[head];
+    head = (head + 1) % queue.length;
+    size--;
+    return packed;
+  }
+
+  public static int action(int packed) {
+    return packed >>> ACTION_SHIFT;
+  }
+
+  public static int cell(int packed) {
+    return packed & CELL_MASK;
+  }
+
+  public int getHovered() {
+    return hovered;
+  }
+
+  public boolean isPressed(int cell) {
+    return cell >= 0 && cell == pressed;
+  }
+
+  public int getCursor() {
+    return cursor;
+  }
+}
@@ -0,0 +1,258 @@
+package minesweeper;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.imageio.ImageIO;
+
+/**
+ * Draws boards without a window, straight into an ARGB {@code int[]} using the game's sprites and
+ * {@link App#mineCountColour}. Numbers use a small built-in bitmap font. A renderer keeps its own
+ * buffer, so use one per thread.
+ */
+public class BoardRenderer {
+
+  private static final int BACKGROUND = 0xFFC8C8C8;
+
+  // 3x5 digits, one row per 3 bits, top row first.
+  private static final int[][] DIGITS = {
+    {7, 5, 5, 5, 7}, {2, 6, 2, 2, 7}, {7, 1, 7, 4, 7}, {7, 1, 7, 1, 7}, {5, 5, 7, 1, 1},
+    {7, 4, 7, 1, 7}, {7, 4, 7, 5, 7}, {7, 1, 1, 1, 1}, {7, 5, 7, 5, 7}, {7, 5, 7, 1, 7}
+  };
+
+  private final int cellSize;
+  private final Map<String, int[]> sprites = new HashMap<>();
+  private int[] pixels = new int[0];
+  private int imageWidth;
+  private int imageHeight;
+
+  public BoardRenderer(int cellSize) {
+    this.cellSize = cellSize;
+    for (Map.Entry<String, BufferedImage> e : Sprites.load(cellSize).entrySet()) {
+      sprites.put(e.getKey(), e.getValue().getRGB(0, 0, cellSize, cellSize, null, 0, cellSize));
+    }
+  }
+
+  /**
+   * Renders the board as the player sees it, or with every mine shown if {@code showMines}. The
+   * returned buffer is reused by the next call; its size is {@link #getImageWidth} by {@link
+   * #getImageHeight}.
+   */
+  public int[] render(Board board, boolean showMines) {
+    resize(board);
+    for (int i = 0; i < board.cellCount(); i++) {
+      drawCell(board, i, showMines, false);
+    }
+    return pixels;
+  }
+
+  private void resize(Board board) {
+    imageWidth = board.getWidth() * cellSize + board.getTopology().extraWidth(cellSize);
+    imageHeight = board.getHeight() * cellSize;
+    if (pixels.length != imageWidth * imageHeight) {
+      pixels = new int[imageWidth * imageHeight];
+    }
+    Arrays.fill(pixels, BACKGROUND);
+  }
+
+  private void drawCell(Board board, int index, boolean showMines, boolean hidden) {
+    int x = index % board.getWidth();
+    int y = index / board.getWidth();
+    int left = board.getTopology().left(x, y, cellSize);
+    int top = board.getTopology().top(x, y, cellSize);
+    if (hidden) {
+      blit("tile1", left, top);
+      return;
+    }
+    boolean revealed = board.isRevealed(index);
+    boolean mine = board.hasMine(index);
+    blit(revealed || (showMines && mine) ? "tile" : "tile1", left, top);
+    if (mine && (revealed || showMines)) {
+      blit("mine0", left, top);
+    } else if (revealed) {
+      int count = board.countAdjacentMines(index);
+      if (count > 0) {
+        drawNumber(count, left, top);
+      }
+    } else if (board.isFlagged(index)) {
+      blit("flag", left, top);
+    }
+  }
+
+  private void blit(String name, int left, int top) {
+    int[] sprite = sprites.get(name);
+    for (int sy = 0; sy < cellSize; sy++) {
+      int row = (top + sy) * imageWidth + left;
+      for (int sx = 0; sx < cellSize; sx++) {
+        int src = sprite[sy * cellSize + sx];
+        int alpha = src >>> 24;
+        if (alpha == 255) {
+          pixels[row + sx] = src;
+        } else if (alpha != 0) {
+          pixels[row + sx] = blend(pixels[row + sx], src, alpha);
+        }
+      }
+    }
+  }
+
+  private static int blend(int dst, int src, int alpha) {
+    int inv = 255 - alpha;
+    int r = (((src >> 16) & 0xFF) * alpha + ((dst >> 16) & 0xFF) * inv) / 255;
+    int g = (((src >> 8) & 0xFF) * alpha + ((dst >> 8) & 0xFF) * inv) / 255;
+    int b = ((src & 0xFF) * alpha + (dst & 0xFF) * inv) / 255;
+    return 0xFF000000 | r << 16 | g << 8 | b;
+  }
+
+  private void drawNumber(int count, int left, int top) {
+    int[] rgb = App.mineCountColour[Math.min(count, App.mineCountColour.length - 1)];
+    int colour = 0xFF000000 | rgb[0] << 16 | rgb[1] << 8 | rgb[2];
+    String digits = String.valueOf(count);
+    // Glyphs are 3x5 pixels plus one pixel of spacing, scaled to about half the cell height.
+    int scale = Math.max(1, cellSize / 10);
+    int textWidth = (digits.length() * 4 - 1) * scale;
+    int x0 = left + (cellSize - textWidth) / 2;
+    int y0 = top + (cellSize - 5 * scale) / 2;
+    for (int d = 0; d < digits.length(); d++) {
+      int[] glyph = DIGITS[digits.charAt(d) - '0'];
+      for (int gy = 0; gy < 5; gy++) {
+        for (int gx = 0; gx < 3; gx++) {
+          if ((glyph[gy] >> (2 - gx) & 1) != 0) {
+            fillRect(x0 + (d * 4 + gx) * scale, y0 + gy * scale, scale, colour);
+          }
+        }
+      }
+    }
+  }
+
+  private void fillRect(int x, int y, int size, int colour) {
+    for (int dy = 0; dy < size; dy++) {
+      int row = (y + dy) * imageWidth;
+      for (int dx = 0; dx < size; dx++) {
+        if (x + dx >= 0 && x + dx < imageWidth && y + dy >= 0 && y + dy < imageHeight) {
+          pixels[row + x + dx] = colour;
+        }
+      }
+    }
+  }
+
+  public int getImageWidth() {
+    return imageWidth;
+  }
+
+  public int getImageHeight() {
+    return imageHeight;
+  }
+
+  public void writePng(Path file) throws IOException {
+    BufferedImage image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB);
+    int[] target = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    System.arraycopy(pixels, 0, target, 0, imageWidth * imageHeight);
+    ImageIO.write(image, "png", file.toFile());
+  }
+
+  /** Writes the current image as raw big-endian ARGB, four bytes per pixel, row by row. */
+  public void writeRaw(OutputStream out) throws IOException {
+    byte[] row = new byte[imageWidth * 4];
+    for (int y = 0; y < imageHeight; y++) {
+      for (int x = 0; x < imageWidth; x++) {
+        int p = pixels[y * imageWidth + x];
+        row[x * 4] = (byte) (p >>> 24);
+        row[x * 4 + 1] = (byte) (p >>> 16);
+        row[x * 4 + 2] = (byte) (p >>> 8);
+        row[x * 4 + 3] = (byte) p;
+      }
+      out.write(row);
+    }
+  }
+
+  /**
+   * Writes a replay of the board's reveal log as raw frames: the hidden board, then {@code
+   * cellsPerFrame} more revealed cells per frame, in the order they were revealed. Only the new
+   * cells are redrawn between frames. Returns the number of frames written.
+   */
+  public int writeRevealFrames(Board board, int cellsPerFrame, OutputStream out)
+      throws IOException {
+    int[] log = board.getRevealLog();
+    int length = board.getRevealLogLength();
+    resize(board);
+    for (int i = 0; i < board.cellCount(); i++) {
+      drawCell(board, i, false, true);
+    }
+    writeRaw(out);
+    int frames = 1;
+    for (int from = 0; from < length; from += cellsPerFrame) {
+      for (int i = from; i < Math.min(length, from + cellsPerFrame); i++) {
+        drawCell(board, log[i], false, false);
+      }
+      writeRaw(out);
+      frames++;
+    }
+    return frames;
+  }
+
+  /**
+   * Renders thumbnails of seeded boards on all cores, one PNG per board, fully uncovered.
+   * Takes the options of {@link BatchOptions} (100 boards by default) plus {@code --out=dir}
+   * and {@code --frames=N}, which also writes {@code board-<seed>.argb}: the board being
+   * uncovered cell by cell in index order, N cells per frame, as {@link #writeRevealFrames}
+   * frames the size of the PNG.
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    BatchOptions options = BatchOptions.fromArgs(args, 100);
+    Path out = Paths.get("thumbnails");
+    int cellsPerFrame = 0;
+    for (String arg : args) {
+      if (arg.startsWith("--out=")) {
+        out = Paths.get(arg.substring("--out=".length()));
+      } else if (arg.startsWith("--frames=")) {
+        cellsPerFrame = Integer.parseInt(arg.substring("--frames=".length()));
+        if (cellsPerFrame < 1) {
+          throw new IllegalArgumentException("Invalid cells per frame " + cellsPerFrame);
+        }
+      }
+    }
+    Files.createDirectories(out);
+
+    ThreadLocal<Board> boardPerThread = options.boardPerThread();
+    ThreadLocal<BoardRenderer> rendererPerThread =
+        ThreadLocal.withInitial(() -> new BoardRenderer(options.config.getCellSize()));
+    long startTime = System.nanoTime();
+    Path dir = out;
+    int frames = cellsPerFrame;
+    options.forEachChunk(
+        8,
+        (first, last) -> {
+          Board board = boardPerThread.get();
+          BoardRenderer renderer = rendererPerThread.get();
+          for (long seed = first; seed < last; seed++) {
+            options.deal(board, seed);
+            for (int cell = 0; cell < board.cellCount(); cell++) {
+              if (!board.hasMine(cell)) {
+                board.reveal(cell);
+              }
+            }
+            if (frames > 0) {
+              try (OutputStream raw =
+                  new BufferedOutputStream(
+                      Files.newOutputStream(dir.resolve("board-" + seed + ".argb")), 1 << 16)) {
+                renderer.writeRevealFrames(board, frames, raw);
+              }
+            }
+            renderer.render(board, true);
+            renderer.writePng(dir.resolve("board-" + seed + ".png"));
+          }
+          return null;
+        },
+        done -> {});
+    double seconds = (System.nanoTime() - startTime) / 1e9;
+    System.err.printf("%d thumbnails in %.2f s%n", options.boards, seconds);
+  }
+}
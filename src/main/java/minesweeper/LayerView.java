@@ -0,0 +1,134 @@
+package minesweeper;
+
+import processing.core.PConstants;
+import processing.core.PGraphics;
+
+/**
+ * Draws one layer of a {@link Board3D} at a time, straight from the board's arrays. Each cell
+ * also marks the cells directly above and below it: the top left corner for the previous layer
+ * and the bottom right corner for the next one, white when that cell is revealed and red when it
+ * is flagged. Cell indices passed in and out are board indices, not layer positions.
+ */
+public class LayerView {
+  private final Board3D board;
+  private final int cellSize;
+  private final int markSize;
+  private int layer;
+
+  public LayerView(Board3D board, int cellSize) {
+    this.board = board;
+    this.cellSize = cellSize;
+    this.markSize = Math.max(2, cellSize / 6);
+  }
+
+  /** Shows layer {@code z}, clamped to the board. Returns true if the layer changed. */
+  public boolean setLayer(int z) {
+    int clamped = Math.max(0, Math.min(board.getDepth() - 1, z));
+    if (clamped == layer) {
+      return false;
+    }
+    layer = clamped;
+    return true;
+  }
+
+  public int getLayer() {
+    return layer;
+  }
+
+  /**
+   * Redraws the part of a region from {@link Board3D#takeDirtyRegion} that shows on the current
+   * layer, including its marks for the layers above and below.
+   */
+  public void draw(PGraphics g, App app, int[] region, boolean showMines) {
+    if (region[2] > layer + 1 || region[5] < layer - 1) {
+      return;
+    }
+    g.noStroke();
+    for (int y = region[1]; y <= region[4]; y++) {
+      for (int x = region[0]; x <= region[3]; x++) {
+        drawCell(g, app, x, y, showMines);
+      }
+    }
+  }
+
+  private void drawCell(PGraphics g, App app, int x, int y, boolean showMines) {
+    int index = board.index(x, y, layer);
+    int left = x * cellSize;
+    int top = y * cellSize;
+    boolean revealed = board.isRevealed(index);
+    boolean mine = board.hasMine(index);
+    g.image(app.getSprite(revealed || (showMines && mine) ? "tile" : "tile1"), left, top);
+    if (mine && (revealed || showMines)) {
+      boolean triggered = index == board.getTriggeredMine();
+      g.image(app.getSprite(triggered ? "wall0" : "mine0"), left, top);
+    } else if (revealed) {
+      int mineCount = board.countAdjacentMines(index);
+      if (mineCount > 0) {
+        int[] colour = App.mineCountColour[Math.min(mineCount, App.mineCountColour.length - 1)];
+        g.fill(colour[0], colour[1], colour[2]);
+        g.textAlign(PConstants.CENTER, PConstants.CENTER);
+        g.textSize(18f * cellSize / App.SPRITE_SIZE);
+        g.text(String.valueOf(mineCount), left + 0.5f * cellSize, top + 0.5f * cellSize);
+      }
+    } else if (board.isFlagged(index)) {
+      g.image(app.getSprite("flag"), left, top);
+    }
+    if (layer > 0) {
+      drawLayerMark(g, board.index(x, y, layer - 1), left, top);
+    }
+    if (layer < board.getDepth() - 1) {
+      int corner = cellSize - markSize;
+      drawLayerMark(g, board.index(x, y, layer + 1), left + corner, top + corner);
+    }
+  }
+
+  private void drawLayerMark(PGraphics g, int index, int left, int top) {
+    if (board.isFlagged(index)) {
+      g.fill(255, 0, 0);
+    } else if (board.isRevealed(index)) {
+      g.fill(255);
+    } else {
+      return;
+    }
+    g.rect(left, top, markSize, markSize);
+  }
+
+  /** Draws the hover highlight straight onto the sketch, if the cell is on the current layer. */
+  public void drawHover(App app, int index, boolean pressed) {
+    if (!isVisible(index) || board.isRevealed(index)) {
+      return;
+    }
+    int left = index % board.getWidth() * cellSize;
+    int top = index / board.getWidth() % board.getHeight() * cellSize + App.TOPBAR;
+    app.image(app.getSprite(pressed ? "tile" : "tile2"), left, top);
+    if (board.isFlagged(index)) {
+      app.image(app.getSprite("flag"), left, top);
+    }
+  }
+
+  public void drawCursor(App app, int index) {
+    if (!isVisible(index)) {
+      return;
+    }
+    int left = index % board.getWidth() * cellSize;
+    int top = index / board.getWidth() % board.getHeight() * cellSize + App.TOPBAR;
+    app.pushStyle();
+    app.noFill();
+    app.stroke(255, 0, 0);
+    app.strokeWeight(2);
+    app.rect(left + 1, top + 1, cellSize - 2, cellSize - 2);
+    app.popStyle();
+  }
+
+  private boolean isVisible(int index) {
+    return index / (board.getWidth() * board.getHeight()) == layer;
+  }
+
+  /** Maps a window position to the board index of the cell on the current layer, or -1. */
+  public int cellAt(int px, int py) {
+    int width = board.getWidth();
+    int height = board.getHeight();
+    int cell = Topology.SQUARE.cellAt(px, py, width, height, cellSize);
+    return cell < 0 ? -1 : layer * width * height + cell;
+  }
+}
@@ -0,0 +1,409 @@
+package minesweeper;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finished games, kept in an append-only text log with an in-memory index per board config.
+ *
+ * <p>Each game is one {@code G} line, and the log is never rewritten. Reads only touch the index,
+ * which keeps the fastest {@link #TOP_SIZE} wins, the time of every win in a {@code long[]} for
+ * percentiles, and a count of losses. All file work runs on one background thread. Every
+ * {@link #SNAPSHOT_INTERVAL} lines the index is saved beside the log in {@code <log>.index},
+ * replaced atomically: an {@code S} line with the length of log it covers, then per config one
+ * {@code L} line with the losses, the top {@code G} lines and one {@code W} line with the other
+ * win times. Opening loads the snapshot and reads only the log after it; without a snapshot that
+ * fits the log, the whole log is read.
+ */
+public class ScoreStore {
+
+  /** How many of the fastest wins per config are kept as full games for {@link #top}. */
+  public static final int TOP_SIZE = 10;
+
+  public static class Game {
+    public final long finishedAt;
+    public final String config;
+    public final long seed;
+    public final long millis;
+    public final int clicks;
+    public final int bbbv;
+    public final boolean won;
+
+    public Game(
+        long finishedAt, String config, long seed, long millis, int clicks, int bbbv, boolean won) {
+      this.finishedAt = finishedAt;
+      this.config = config;
+      this.seed = seed;
+      this.millis = millis;
+      this.clicks = clicks;
+      this.bbbv = bbbv;
+      this.won = won;
+    }
+
+    public double bbbvPerSecond() {
+      return millis == 0 ? 0 : bbbv * 1000.0 / millis;
+    }
+
+    String toLine() {
+      return "G," + finishedAt + "," + config + "," + seed + "," + millis + "," + clicks + ","
+          + bbbv + "," + (won ? 1 : 0);
+    }
+
+    static Game parse(String[] f) {
+      return new Game(
+          Long.parseLong(f[1]),
+          f[2].intern(),
+          Long.parseLong(f[3]),
+          Long.parseLong(f[4]),
+          Integer.parseInt(f[5]),
+          Integer.parseInt(f[6]),
+          f[7].equals("1"));
+    }
+  }
+
+  private static class ConfigStats {
+    final List<Game> best = new ArrayList<>();
+    long[] times = new long[16];
+    int wins;
+    boolean sorted = true;
+    int losses;
+
+    void add(Game game) {
+      if (!game.won) {
+        losses++;
+        return;
+      }
+      addTime(game.millis);
+      if (best.size() < TOP_SIZE || game.millis < best.get(best.size() - 1).millis) {
+        int at = Collections.binarySearch(best, game, (a, b) -> Long.compare(a.millis, b.millis));
+        best.add(at < 0 ? -at - 1 : at, game);
+        if (best.size() > TOP_SIZE) {
+          best.remove(best.size() - 1);
+        }
+      }
+    }
+
+    void addTime(long millis) {
+      if (wins == times.length) {
+        times = Arrays.copyOf(times, wins * 2);
+      }
+      sorted = sorted && (wins == 0 || times[wins - 1] <= millis);
+      times[wins++] = millis;
+    }
+
+    // Times are appended as games arrive and sorted once when a percentile is next asked for.
+    long[] sortedTimes() {
+      if (!sorted) {
+        Arrays.sort(times, 0, wins);
+        sorted = true;
+      }
+      return times;
+    }
+  }
+
+  /** How many log lines may follow the snapshot before it is written again. */
+  static final int SNAPSHOT_INTERVAL = 10000;
+
+  private final Path file;
+  private final Path snapshot;
+  private final Map<String, ConfigStats> index = new HashMap<>();
+  private final ExecutorService io =
+      Executors.newSingleThreadExecutor(
+          r -> {
+            Thread t = new Thread(r, "score-store");
+            t.setDaemon(true);
+            return t;
+          });
+  private BufferedWriter writer;
+  // Length of the log up to its last complete line, or -1 if it could not be read.
+  private long logBytes;
+  // Bytes of a last line that a crash cut off before its newline.
+  private int partialLine;
+  private int linesSinceSnapshot;
+
+  public ScoreStore(Path file) {
+    this.file = file;
+    this.snapshot = file.resolveSibling(file.getFileName() + ".index");
+  }
+
+  /** Loads the index in the background; games recorded meanwhile are appended after it. */
+  public void open() {
+    io.execute(
+        () -> {
+          load();
+          snapshotIfNeeded();
+        });
+  }
+
+  // The index is updated on the log thread too, so a snapshot never counts a game that is still
+  // waiting to be appended.
+  public void record(Game game) {
+    io.execute(
+        () -> {
+          synchronized (this) {
+            index.computeIfAbsent(game.config, k -> new ConfigStats()).add(game);
+          }
+          append(game.toLine());
+          snapshotIfNeeded();
+        });
+  }
+
+  /** The fastest wins, at most {@code n} and never more than {@link #TOP_SIZE}. */
+  public synchronized List<Game> top(String config, int n) {
+    ConfigStats stats = index.get(config);
+    if (stats == null) {
+      return Collections.emptyList();
+    }
+    return new ArrayList<>(stats.best.subList(0, Math.min(n, stats.best.size())));
+  }
+
+  /** The winning time in ms at percentile {@code p} (0 to 100), or -1 without any wins. */
+  public synchronized long percentile(String config, double p) {
+    ConfigStats stats = index.get(config);
+    if (stats == null || stats.wins == 0) {
+      return -1;
+    }
+    int at = (int) Math.ceil(p / 100 * stats.wins) - 1;
+    return stats.sortedTimes()[Math.max(0, Math.min(stats.wins - 1, at))];
+  }
+
+  public synchronized int wins(String config) {
+    ConfigStats stats = index.get(config);
+    return stats == null ? 0 : stats.wins;
+  }
+
+  public synchronized int games(String config) {
+    ConfigStats stats = index.get(config);
+    return stats == null ? 0 : stats.wins + stats.losses;
+  }
+
+  /** Waits briefly for pending writes, then closes the log. */
+  public void close() {
+    io.execute(this::closeWriter);
+    io.shutdown();
+    try {
+      io.awaitTermination(2, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Waits for everything queued so far, loading included, to reach the files. */
+  void awaitPending() throws InterruptedException {
+    try {
+      io.submit(() -> {}).get();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private void load() {
+    try {
+      long size = Files.size(file);
+      readLog(loadSnapshot(size));
+    } catch (NoSuchFileException e) {
+      // No games played yet.
+    } catch (IOException e) {
+      logBytes = -1;
+      System.err.println("Could not read scores " + file + ": " + e.getMessage());
+    }
+  }
+
+  // Returns the length of log the snapshot covers, or 0 with an empty index if there is no
+  // snapshot or it does not fit the log.
+  private long loadSnapshot(long logSize) {
+    List<String> lines;
+    try {
+      lines = Files.readAllLines(snapshot, StandardCharsets.UTF_8);
+    } catch (NoSuchFileException e) {
+      return 0;
+    } catch (IOException e) {
+      System.err.println("Could not read score index " + snapshot + ": " + e.getMessage());
+      return 0;
+    }
+    try {
+      String[] header = lines.isEmpty() ? new String[0] : lines.get(0).split(",");
+      if (header.length != 2 || !header[0].equals("S")) {
+        return 0;
+      }
+      long covered = Long.parseLong(header[1]);
+      if (covered < 0 || covered > logSize || !startsLine(covered)) {
+        return 0;
+      }
+      for (String line : lines.subList(1, lines.size())) {
+        parse(line);
+      }
+      return covered;
+    } catch (NumberFormatException | IOException e) {
+      synchronized (this) {
+        index.clear();
+      }
+      return 0;
+    }
+  }
+
+  // A snapshot ends on a line boundary of the log it was written for.
+  private boolean startsLine(long offset) throws IOException {
+    if (offset == 0) {
+      return true;
+    }
+    try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+      ByteBuffer last = ByteBuffer.allocate(1);
+      channel.position(offset - 1).read(last);
+      return last.get(0) == '\n';
+    }
+  }
+
+  private void readLog(long from) throws IOException {
+    logBytes = from;
+    try (SeekableByteChannel channel = Files.newByteChannel(file);
+        InputStream in = Channels.newInputStream(channel.position(from))) {
+      byte[] buffer = new byte[1 << 16];
+      ByteArrayOutputStream line = new ByteArrayOutputStream();
+      int n;
+      while ((n = in.read(buffer)) > 0) {
+        int start = 0;
+        for (int i = 0; i < n; i++) {
+          if (buffer[i] == '\n') {
+            line.write(buffer, start, i - start);
+            logBytes += line.size() + 1;
+            linesSinceSnapshot++;
+            try {
+              parse(new String(line.toByteArray(), StandardCharsets.UTF_8).trim());
+            } catch (NumberFormatException e) {
+              // A garbled line; it stays in the log but is skipped.
+            }
+            line.reset();
+            start = i + 1;
+          }
+        }
+        line.write(buffer, start, n - start);
+      }
+      partialLine = line.size();
+    }
+  }
+
+  // L and W lines also appear in logs compacted by earlier versions.
+  private void parse(String line) {
+    String[] f = line.split(",");
+    if (f[0].equals("G") && f.length == 8) {
+      Game game = Game.parse(f);
+      synchronized (this) {
+        index.computeIfAbsent(game.config, k -> new ConfigStats()).add(game);
+      }
+    } else if (f[0].equals("L") && f.length == 3) {
+      int losses = Integer.parseInt(f[2]);
+      synchronized (this) {
+        index.computeIfAbsent(f[1].intern(), k -> new ConfigStats()).losses += losses;
+      }
+    } else if (f[0].equals("W") && f.length == 3) {
+      String[] times = f[2].split(" ");
+      synchronized (this) {
+        ConfigStats stats = index.computeIfAbsent(f[1].intern(), k -> new ConfigStats());
+        for (String time : times) {
+          stats.addTime(Long.parseLong(time));
+        }
+      }
+    }
+  }
+
+  private void append(String line) {
+    try {
+      if (writer == null) {
+        if (file.getParent() != null) {
+          Files.createDirectories(file.getParent());
+        }
+        writer =
+            Files.newBufferedWriter(
+                file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (partialLine > 0) {
+          // End the line a crash cut short, so it cannot run into this one.
+          writer.write('\n');
+          logBytes += partialLine + 1;
+          partialLine = 0;
+        }
+      }
+      writer.write(line);
+      writer.write('\n');
+      writer.flush();
+      if (logBytes >= 0) {
+        logBytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+      }
+      linesSinceSnapshot++;
+    } catch (IOException e) {
+      System.err.println("Could not write scores " + file + ": " + e.getMessage());
+    }
+  }
+
+  private void snapshotIfNeeded() {
+    if (linesSinceSnapshot > SNAPSHOT_INTERVAL && logBytes >= 0) {
+      writeSnapshot();
+    }
+  }
+
+  private void writeSnapshot() {
+    List<String> lines = new ArrayList<>();
+    lines.add("S," + logBytes);
+    synchronized (this) {
+      for (Map.Entry<String, ConfigStats> e : index.entrySet()) {
+        ConfigStats stats = e.getValue();
+        if (stats.losses > 0) {
+          lines.add("L," + e.getKey() + "," + stats.losses);
+        }
+        for (Game game : stats.best) {
+          lines.add(game.toLine());
+        }
+        // The top list holds exactly the smallest times, so the rest follow it in sorted order.
+        long[] times = stats.sortedTimes();
+        if (stats.wins > stats.best.size()) {
+          StringBuilder line = new StringBuilder("W,").append(e.getKey()).append(',');
+          for (int i = stats.best.size(); i < stats.wins; i++) {
+            line.append(i > stats.best.size() ? " " : "").append(times[i]);
+          }
+          lines.add(line.toString());
+        }
+      }
+    }
+    Path temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+    try {
+      Files.write(temp, lines, StandardCharsets.UTF_8);
+      Files.move(
+          temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      linesSinceSnapshot = 0;
+    } catch (IOException e) {
+      System.err.println("Could not write score index " + snapshot + ": " + e.getMessage());
+    }
+  }
+
+  private void closeWriter() {
+    if (writer != null) {
+      try {
+        writer.close();
+      } catch (IOException e) {
+        System.err.println("Could not close scores " + file + ": " + e.getMessage());
+      }
+      writer = null;
+    }
+  }
+}
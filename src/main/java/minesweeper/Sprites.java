@@ -0,0 +1,93 @@
+package minesweeper;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.Toolkit;
+import java.awt.image.BufferedImage;
+import java.awt.image.PixelGrabber;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Loads the sprite PNGs off the sketch thread. Images are read as resource streams, so they load
+ * the same way from the build directory and from inside the jar. They are decoded with the AWT
+ * toolkit rather than ImageIO, whose plugin registry costs about 100 ms on a cold start.
+ */
+public class Sprites {
+
+  public static final String[] NAMES = {
+    "tile1", "tile2", "flag", "tile", "wall0", "mine0", "mine1", "mine2", "mine3", "mine4", "mine5",
+    "mine6", "mine7", "mine8", "mine9"
+  };
+
+  private static CompletableFuture<Map<String, BufferedImage>> pending;
+
+  /** Starts reading every sprite in parallel, once; later calls return the same future. */
+  public static synchronized CompletableFuture<Map<String, BufferedImage>> preload() {
+    if (pending == null) {
+      CompletableFuture<?>[] reads = new CompletableFuture<?>[NAMES.length];
+      for (int i = 0; i < NAMES.length; i++) {
+        String name = NAMES[i];
+        reads[i] = CompletableFuture.supplyAsync(() -> read(name));
+      }
+      pending =
+          CompletableFuture.allOf(reads)
+              .thenApply(
+                  done -> {
+                    Map<String, BufferedImage> images = new HashMap<>();
+                    for (int i = 0; i < NAMES.length; i++) {
+                      images.put(NAMES[i], (BufferedImage) reads[i].join());
+                    }
+                    return images;
+                  });
+    }
+    return pending;
+  }
+
+  /** Returns every sprite at {@code size} pixels square, waiting for the preload if needed. */
+  public static Map<String, BufferedImage> load(int size) {
+    Map<String, BufferedImage> images = new HashMap<>(preload().join());
+    if (size != App.SPRITE_SIZE) {
+      images.replaceAll((name, image) -> scale(image, size));
+    }
+    return images;
+  }
+
+  private static BufferedImage read(String name) {
+    try (InputStream in = Sprites.class.getResourceAsStream(name + ".png")) {
+      if (in == null) {
+        throw new IOException("Missing sprite " + name);
+      }
+      Image image = Toolkit.getDefaultToolkit().createImage(in.readAllBytes());
+      PixelGrabber grabber = new PixelGrabber(image, 0, 0, -1, -1, true);
+      if (!grabber.grabPixels() || grabber.getWidth() < 0) {
+        throw new IOException("Could not decode sprite " + name);
+      }
+      int w = grabber.getWidth();
+      int h = grabber.getHeight();
+      BufferedImage argb = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+      argb.setRGB(0, 0, w, h, (int[]) grabber.getPixels(), 0, w);
+      return argb;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted loading sprite " + name, e);
+    }
+  }
+
+  public static BufferedImage scale(BufferedImage image, int size) {
+    BufferedImage scaled = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g = scaled.createGraphics();
+    g.setRenderingHint(
+        RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+    g.drawImage(image, 0, 0, size, size, null);
+    g.dispose();
+    return scaled;
+  }
+}
@@ -1,170 +1,157 @@
 package minesweeper;
 
-import java.util.ArrayList;
-import java.util.List;
 import processing.core.PConstants;
+import processing.core.PGraphics;
 import processing.core.PImage;
 
 public class Tile {
-  private boolean revealed;
-  private boolean flagged;
-  private int x;
-  private int y;
-  private boolean mine;
+  private final Board board;
+  private final int index;
+  private final int x;
+  private final int y;
+  private final int left;
+  private final int top;
   private int explosionFrame;
   private boolean exploding;
   private static final int EXPLOSION_FRAMES = 10;
   private static final int EXPLOSION_SPEED = 5; // 每5帧更新一次爆炸动画
 
-  public Tile(int x, int y) {
+  public Tile(Board board, int x, int y, int cellSize) {
+    this.board = board;
+    this.index = board.index(x, y);
     this.x = x;
     this.y = y;
+    this.left = board.getTopology().left(x, y, cellSize);
+    this.top = board.getTopology().top(x, y, cellSize);
     reset();
   }
 
   public void reset() {
-    this.revealed = false;
-    this.flagged = false;
-    this.mine = false;
     this.explosionFrame = 0;
     this.exploding = false;
   }
 
-  public void draw(App app) {
+  /** Draws the tile into the board layer, whose origin is the top left corner of the board. */
+  public void draw(PGraphics g, App app) {
+    int cellSize = app.getConfig().getCellSize();
+    boolean revealed = isRevealed();
     PImage tile = app.getSprite(revealed ? "tile" : "tile1");
-    if (!revealed && isMouseOver(app)) {
-      tile = app.getSprite(app.mousePressed && app.mouseButton == PConstants.LEFT ? "tile" : "tile2");
-    }
-    app.image(tile, x * App.CELLSIZE, y * App.CELLSIZE + App.TOPBAR);
+    g.image(tile, left, top);
 
     if (revealed) {
-      if (mine) {
+      if (hasMine()) {
         if (exploding) {
           if (explosionFrame < EXPLOSION_FRAMES) {
             PImage explosionSprite = app.getSprite("mine" + explosionFrame);
-            app.image(explosionSprite, x * App.CELLSIZE, y * App.CELLSIZE + App.TOPBAR);
-            if (app.frameCount % EXPLOSION_SPEED == 0) {
-              explosionFrame++;
-            }
+            g.image(explosionSprite, left, top);
           } else {
             PImage wallSprite = app.getSprite("wall0");
-            app.image(wallSprite, x * App.CELLSIZE, y * App.CELLSIZE + App.TOPBAR);
+            g.image(wallSprite, left, top);
           }
         } else {
           PImage mineSprite = app.getSprite("mine0");
-          app.image(mineSprite, x * App.CELLSIZE, y * App.CELLSIZE + App.TOPBAR);
+          g.image(mineSprite, left, top);
         }
       } else {
-        int mineCount = countAdjacentMines(app);
+        int mineCount = countAdjacentMines();
         if (mineCount > 0) {
-          app.fill(
-              App.mineCountColour[mineCount][0],
-              App.mineCountColour[mineCount][1],
-              App.mineCountColour[mineCount][2]);
-          app.textAlign(PConstants.CENTER, PConstants.CENTER);
-          app.textSize(18);
-          app.text(
-              String.valueOf(mineCount),
-              (x + 0.5f) * App.CELLSIZE,
-              (y + 0.5f) * App.CELLSIZE + App.TOPBAR);
+          int[] colour = App.mineCountColour[Math.min(mineCount, App.mineCountColour.length - 1)];
+          g.fill(colour[0], colour[1], colour[2]);
+          g.textAlign(PConstants.CENTER, PConstants.CENTER);
+          g.textSize(18f * cellSize / App.SPRITE_SIZE);
+          g.text(String.valueOf(mineCount), left + 0.5f * cellSize, top + 0.5f * cellSize);
         }
       }
-    } else if (flagged) {
+    } else if (isFlagged()) {
       PImage flag = app.getSprite("flag");
-      app.image(flag, x * App.CELLSIZE, y * App.CELLSIZE + App.TOPBAR);
+      g.image(flag, left, top);
     }
   }
 
-  private boolean isMouseOver(App app) {
-    return app.mouseX >= x * App.CELLSIZE
-        && app.mouseX < (x + 1) * App.CELLSIZE
-        && app.mouseY >= y * App.CELLSIZE + App.TOPBAR
-        && app.mouseY < (y + 1) * App.CELLSIZE + App.TOPBAR;
+  /** Draws the hover highlight straight onto the sketch, on top of the board layer. */
+  public void drawHover(App app, boolean pressed) {
+    if (isRevealed()) {
+      return;
+    }
+    PImage tile = app.getSprite(pressed ? "tile" : "tile2");
+    app.image(tile, left, top + App.TOPBAR);
+    if (isFlagged()) {
+      app.image(app.getSprite("flag"), left, top + App.TOPBAR);
+    }
   }
 
-  public void onClick(App app) {
-    if (!revealed && !flagged && !app.isGameOver()) {
-      reveal();
-      if (mine) {
-        exploding = true;
-        app.gameOver(false);
-      } else if (countAdjacentMines(app) == 0) {
-        revealAdjacentTiles(app);
-      }
-    }
+  public void drawCursor(App app) {
+    int cellSize = app.getConfig().getCellSize();
+    app.pushStyle();
+    app.noFill();
+    app.stroke(255, 0, 0);
+    app.strokeWeight(2);
+    app.rect(left + 1, top + App.TOPBAR + 1, cellSize - 2, cellSize - 2);
+    app.popStyle();
   }
 
-  public void toggleFlag() {
-    if (!revealed) {
-      flagged = !flagged;
+  public void advanceExplosion(int frameCount) {
+    if (exploding && explosionFrame < EXPLOSION_FRAMES && frameCount % EXPLOSION_SPEED == 0) {
+      explosionFrame++;
     }
   }
 
-  public void reveal() {
-    if (!flagged) {
-      revealed = true;
-    }
+  public boolean isExplosionFinished() {
+    return !exploding || explosionFrame >= EXPLOSION_FRAMES;
   }
 
-  private void revealAdjacentTiles(App app) {
-    for (Tile t : getAdjacentTiles(app)) {
-      if (!t.isRevealed() && !t.isFlagged()) {
-        t.reveal();
-        if (t.countAdjacentMines(app) == 0) {
-          t.revealAdjacentTiles(app);
-        }
+  public void onClick(App app) {
+    if (!isRevealed() && !isFlagged() && !app.isGameOver()) {
+      board.reveal(index);
+      if (hasMine()) {
+        exploding = true;
+        app.gameOver(false);
       }
     }
   }
 
-  public List<Tile> getAdjacentTiles(App app) {
-    ArrayList<Tile> result = new ArrayList<>();
-    Tile[][] board = app.getBoard();
-    for (int dy = -1; dy <= 1; dy++) {
-      for (int dx = -1; dx <= 1; dx++) {
-        if (dx == 0 && dy == 0)
-          continue;
-        int newX = x + dx;
-        int newY = y + dy;
-        if (newX >= 0 && newX < board[0].length && newY >= 0 && newY < board.length) {
-          result.add(board[newY][newX]);
-        }
-      }
-    }
-    return result;
+  public void toggleFlag() {
+    board.toggleFlag(index);
   }
 
-  public int countAdjacentMines(App app) {
-    return (int) getAdjacentTiles(app).stream().filter(Tile::hasMine).count();
+  public void reveal() {
+    board.reveal(index);
   }
 
-  public boolean hasMine() {
-    return mine;
+  public int countAdjacentMines() {
+    return board.countAdjacentMines(index);
   }
 
-  public void setMine(boolean mine) {
-    this.mine = mine;
+  public boolean hasMine() {
+    return board.hasMine(index);
   }
 
   public boolean isRevealed() {
-    return revealed;
+    return board.isRevealed(index);
   }
 
   public boolean isFlagged() {
-    return flagged;
+    return board.isFlagged(index);
   }
 
-  public void startExplosion() {
-    if (mine && !exploding) {
+  /** Returns true if an explosion started, false if there is no mine or it already exploded. */
+  public boolean startExplosion() {
+    if (hasMine() && !exploding) {
       exploding = true;
       explosionFrame = 0;
+      return true;
     }
+    return false;
   }
 
   public boolean isExploding() {
     return exploding;
   }
 
+  public int getIndex() {
+    return index;
+  }
+
   public int getX() {
     return x;
   }
@@ -0,0 +1,136 @@
+package minesweeper;
+
+import java.util.Arrays;
+
+/**
+ * How cells on a {@code width x height} grid neighbour each other. Each topology is a set of
+ * {dx, dy} offset tables selected by a per-cell parity, which {@link #buildNeighbours} flattens
+ * into a table over cell indices ({@code y * width + x}) once per board.
+ */
+public enum Topology {
+  SQUARE(false, new int[][] {{-1, -1, 0, -1, 1, -1, -1, 0, 1, 0, -1, 1, 0, 1, 1, 1}}),
+
+  // "odd-r" layout: odd rows are drawn half a cell to the right.
+  HEX(
+      false,
+      new int[][] {
+        {-1, 0, 1, 0, -1, -1, 0, -1, -1, 1, 0, 1}, {-1, 0, 1, 0, 0, -1, 1, -1, 0, 1, 1, 1}
+      }) {
+    @Override
+    int parity(int x, int y) {
+      return y & 1;
+    }
+
+    @Override
+    public int left(int x, int y, int cellSize) {
+      return x * cellSize + (y & 1) * cellSize / 2;
+    }
+
+    @Override
+    public int extraWidth(int cellSize) {
+      return cellSize / 2;
+    }
+  },
+
+  TORUS(true, new int[][] {{-1, -1, 0, -1, 1, -1, -1, 0, 1, 0, -1, 1, 0, 1, 1, 1}}),
+
+  KNIGHT(false, new int[][] {{-1, -2, 1, -2, -2, -1, 2, -1, -2, 1, 2, 1, -1, 2, 1, 2}});
+
+  private final boolean wraps;
+  private final int[][] offsets;
+
+  Topology(boolean wraps, int[][] offsets) {
+    this.wraps = wraps;
+    this.offsets = offsets;
+  }
+
+  int parity(int x, int y) {
+    return 0;
+  }
+
+  public int maxNeighbours() {
+    int max = 0;
+    for (int[] table : offsets) {
+      max = Math.max(max, table.length / 2);
+    }
+    return max;
+  }
+
+  /**
+   * Returns the neighbours of every cell in compressed form: the neighbours of cell {@code i}
+   * are {@code table[1][table[0][i]]} up to (excluding) {@code table[1][table[0][i + 1]]}.
+   */
+  public int[][] buildNeighbours(int width, int height) {
+    int cellCount = width * height;
+    int[] start = new int[cellCount + 1];
+    int[] cells = new int[cellCount * maxNeighbours()];
+    int n = 0;
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        start[y * width + x] = n;
+        int[] table = offsets[parity(x, y)];
+        for (int k = 0; k < table.length; k += 2) {
+          int nx = x + table[k];
+          int ny = y + table[k + 1];
+          if (wraps) {
+            nx = Math.floorMod(nx, width);
+            ny = Math.floorMod(ny, height);
+            int index = ny * width + nx;
+            if (nx == x && ny == y || contains(cells, start[y * width + x], n, index)) {
+              continue;
+            }
+          } else if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+            continue;
+          }
+          cells[n++] = ny * width + nx;
+        }
+      }
+    }
+    start[cellCount] = n;
+    if (n < cells.length) {
+      cells = Arrays.copyOf(cells, n);
+    }
+    return new int[][] {start, cells};
+  }
+
+  private static boolean contains(int[] cells, int from, int to, int index) {
+    for (int i = from; i < to; i++) {
+      if (cells[i] == index) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public int left(int x, int y, int cellSize) {
+    return x * cellSize;
+  }
+
+  public int top(int x, int y, int cellSize) {
+    return y * cellSize;
+  }
+
+  public int extraWidth(int cellSize) {
+    return 0;
+  }
+
+  /** Maps a window position to a cell index, or -1 if it is outside the board. */
+  public int cellAt(int px, int py, int width, int height, int cellSize) {
+    if (py < App.TOPBAR) {
+      return -1;
+    }
+    int y = (py - App.TOPBAR) / cellSize;
+    if (y >= height) {
+      return -1;
+    }
+    int dx = px - left(0, y, cellSize);
+    if (dx < 0) {
+      return -1;
+    }
+    int x = dx / cellSize;
+    if (x >= width) {
+      return -1;
+    }
+    return y * width + x;
+  }
+}
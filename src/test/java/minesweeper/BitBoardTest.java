@@ -0,0 +1,86 @@
+package minesweeper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/** Checks the bitboard engine against {@link Board} on random boards of awkward widths. */
+class BitBoardTest {
+
+  // Widths on both sides of the 64-bit word boundaries.
+  private static final int[] WIDTHS = {2, 3, 31, 63, 64, 65, 127, 128, 129, 200};
+
+  @Test
+  void countsMatchBoard() {
+    Random random = new Random(1);
+    for (int width : WIDTHS) {
+      for (int round = 0; round < 20; round++) {
+        int height = 2 + random.nextInt(40);
+        Board board = randomBoard(width, height, random);
+        BitBoard bits = BitBoard.of(board);
+        bits.computeCounts();
+        byte[] counts = new byte[width * height];
+        bits.copyCounts(counts);
+        for (int y = 0; y < height; y++) {
+          for (int x = 0; x < width; x++) {
+            int index = board.index(x, y);
+            assertEquals(board.countAdjacentMines(index), bits.count(x, y), width + "x" + height);
+            assertEquals(board.countAdjacentMines(index), counts[index], width + "x" + height);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void floodFillMatchesBoard() {
+    Random random = new Random(2);
+    for (int width : WIDTHS) {
+      for (int round = 0; round < 20; round++) {
+        int height = 2 + random.nextInt(40);
+        Board board = randomBoard(width, height, random);
+        BitBoard bits = BitBoard.of(board);
+        bits.computeCounts();
+        int start;
+        do {
+          start = random.nextInt(board.cellCount());
+        } while (board.hasMine(start));
+        int x = start % width;
+        int y = start / width;
+        assertEquals(board.reveal(start), bits.reveal(x, y), width + "x" + height);
+        for (int i = 0; i < board.cellCount(); i++) {
+          assertEquals(
+              board.isRevealed(i), bits.isRevealed(i % width, i / width), width + "x" + height);
+        }
+      }
+    }
+  }
+
+  @Test
+  void bitBoardDealMatchesPlainDeal() {
+    Random random = new Random(3);
+    for (int width : WIDTHS) {
+      int height = 2 + random.nextInt(40);
+      int mines = 1 + random.nextInt(width * height / 4);
+      long seed = random.nextLong();
+      Board plain = new Board(width, height, Topology.SQUARE);
+      plain.placeMines(mines, new Random(seed));
+      Board dealt = new Board(width, height, Topology.SQUARE);
+      dealt.placeMines(mines, new Random(seed), new BitBoard(width, height));
+      assertEquals(mines, dealt.getMineCount());
+      for (int i = 0; i < plain.cellCount(); i++) {
+        assertEquals(plain.hasMine(i), dealt.hasMine(i), width + "x" + height);
+        assertEquals(
+            plain.countAdjacentMines(i), dealt.countAdjacentMines(i), width + "x" + height);
+      }
+    }
+  }
+
+  private static Board randomBoard(int width, int height, Random random) {
+    Board board = new Board(width, height, Topology.SQUARE);
+    int cells = width * height;
+    board.placeMines(1 + random.nextInt(Math.max(1, cells / 5)), random);
+    return board;
+  }
+}
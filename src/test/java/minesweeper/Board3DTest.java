@@ -0,0 +1,132 @@
+package minesweeper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/** Checks the layered board's box-sum counts and flood fill against brute force. */
+class Board3DTest {
+
+  @Test
+  void countsMatchBruteForce() {
+    Random random = new Random(5);
+    for (int round = 0; round < 300; round++) {
+      Board3D board = randomBoard(random);
+      String name = size(board) + " round " + round;
+      for (int i = 0; i < board.cellCount(); i++) {
+        int mines = 0;
+        for (int j : neighbours(board, i)) {
+          if (board.hasMine(j)) {
+            mines++;
+          }
+        }
+        assertEquals(mines, board.countAdjacentMines(i), name + " cell " + i);
+      }
+    }
+  }
+
+  @Test
+  void floodFillMatchesBreadthFirstSearch() {
+    Random random = new Random(6);
+    for (int round = 0; round < 300; round++) {
+      Board3D board = randomBoard(random);
+      String name = size(board) + " round " + round;
+      int start;
+      do {
+        start = random.nextInt(board.cellCount());
+      } while (board.hasMine(start));
+
+      boolean[] expected = new boolean[board.cellCount()];
+      int expectedCount = 1;
+      ArrayDeque<Integer> queue = new ArrayDeque<>();
+      expected[start] = true;
+      queue.add(start);
+      while (!queue.isEmpty()) {
+        int cell = queue.poll();
+        if (board.countAdjacentMines(cell) != 0) {
+          continue;
+        }
+        for (int j : neighbours(board, cell)) {
+          if (!expected[j]) {
+            expected[j] = true;
+            expectedCount++;
+            queue.add(j);
+          }
+        }
+      }
+
+      assertEquals(expectedCount, board.reveal(start), name);
+      for (int i = 0; i < board.cellCount(); i++) {
+        assertEquals(expected[i], board.isRevealed(i), name + " cell " + i);
+      }
+    }
+  }
+
+  @Test
+  void chordRevealsUnflaggedNeighbours() {
+    Random random = new Random(7);
+    for (int round = 0; round < 100; round++) {
+      Board3D board = randomBoard(random);
+      int cell = -1;
+      for (int i = 0; i < board.cellCount() && cell < 0; i++) {
+        if (!board.hasMine(i) && board.countAdjacentMines(i) > 0) {
+          cell = i;
+        }
+      }
+      if (cell < 0) {
+        continue;
+      }
+      board.reveal(cell);
+      for (int j : neighbours(board, cell)) {
+        if (board.hasMine(j)) {
+          board.toggleFlag(j);
+        }
+      }
+      board.chord(cell);
+      assertEquals(-1, board.getTriggeredMine());
+      for (int j : neighbours(board, cell)) {
+        assertTrue(board.hasMine(j) ? board.isFlagged(j) : board.isRevealed(j));
+      }
+    }
+  }
+
+  private static Board3D randomBoard(Random random) {
+    Board3D board =
+        new Board3D(1 + random.nextInt(9), 1 + random.nextInt(9), 1 + random.nextInt(9));
+    board.placeMines(random.nextInt(board.cellCount() / 4 + 1), random);
+    return board;
+  }
+
+  private static int[] neighbours(Board3D board, int index) {
+    int width = board.getWidth();
+    int height = board.getHeight();
+    int x = index % width;
+    int y = index / width % height;
+    int z = index / (width * height);
+    int[] found = new int[26];
+    int n = 0;
+    for (int dz = -1; dz <= 1; dz++) {
+      for (int dy = -1; dy <= 1; dy++) {
+        for (int dx = -1; dx <= 1; dx++) {
+          int nx = x + dx;
+          int ny = y + dy;
+          int nz = z + dz;
+          if ((dx != 0 || dy != 0 || dz != 0)
+              && nx >= 0 && nx < width && ny >= 0 && ny < height && nz >= 0
+              && nz < board.getDepth()) {
+            found[n++] = board.index(nx, ny, nz);
+          }
+        }
+      }
+    }
+    return Arrays.copyOf(found, n);
+  }
+
+  private static String size(Board3D board) {
+    return board.getWidth() + "x" + board.getHeight() + "x" + board.getDepth();
+  }
+}
@@ -0,0 +1,139 @@
+package minesweeper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/** Checks the single-pass union-find scan against a plain breadth-first search. */
+class BoardAnalyzerTest {
+
+  @Test
+  void metricsMatchBreadthFirstSearch() {
+    Random random = new Random(3);
+    for (Topology topology : Topology.values()) {
+      for (int round = 0; round < 200; round++) {
+        int width = 2 + random.nextInt(30);
+        int height = 2 + random.nextInt(30);
+        Board board = new Board(width, height, topology);
+        board.placeMines(1 + random.nextInt(width * height / 3 + 1), random);
+        BoardAnalyzer.Result result = new BoardAnalyzer(board.cellCount()).analyze(board);
+
+        String name = topology + " " + width + "x" + height + " round " + round;
+        int[] expected = reference(board);
+        assertEquals(expected[0], result.openings, name);
+        assertEquals(expected[1], result.islands, name);
+        assertEquals(expected[0] + expected[2], result.bbbv, name);
+      }
+    }
+  }
+
+  @Test
+  void mineBesideOneOpeningNeedsNoGuess() {
+    Board board = new Board(8, 8, Topology.SQUARE);
+    board.setMine(0);
+    BoardAnalyzer.Result result = new BoardAnalyzer(board.cellCount()).analyze(board);
+    assertEquals(0, result.guesses);
+    assertEquals(1, result.openings);
+    assertEquals(1, result.bbbv);
+  }
+
+  @Test
+  void fiftyFiftyNeedsOneGuess() {
+    // The opening ends in a column of two 1s, next to two hidden cells holding one mine.
+    Board board = new Board(5, 2, Topology.SQUARE);
+    board.setMine(board.index(4, 0));
+    assertEquals(1, new BoardAnalyzer(board.cellCount()).analyze(board).guesses);
+  }
+
+  @Test
+  void firstClickWithoutOpeningIsAGuess() {
+    Board board = new Board(2, 1, Topology.SQUARE);
+    board.setMine(0);
+    BoardAnalyzer.Result result = new BoardAnalyzer(board.cellCount()).analyze(board);
+    assertEquals(0, result.openings);
+    assertEquals(1, result.guesses);
+  }
+
+  @Test
+  void bbbvLeavesBoardStateAlone() {
+    Board board = new Board(16, 16, Topology.SQUARE);
+    board.placeMines(40, new Random(4));
+    int safe = 0;
+    while (board.hasMine(safe)) {
+      safe++;
+    }
+    board.reveal(safe);
+    int revealed = board.getRevealLogLength();
+    BoardAnalyzer analyzer = new BoardAnalyzer(board.cellCount());
+    analyzer.bbbv(board);
+    assertEquals(revealed, board.getRevealLogLength());
+    assertTrue(board.isRevealed(safe));
+
+    analyzer.analyze(board);
+    for (int i = 0; i < board.cellCount(); i++) {
+      assertFalse(board.isRevealed(i) || board.isFlagged(i));
+    }
+  }
+
+  // Returns {openings, islands, numbered cells not touching an opening}.
+  private static int[] reference(Board board) {
+    int[] start = board.getNeighbourStart();
+    int[] neighbours = board.getNeighbours();
+    int cells = board.cellCount();
+    boolean[] bordered = new boolean[cells];
+    for (int i = 0; i < cells; i++) {
+      for (int k = start[i]; k < start[i + 1]; k++) {
+        if (isZero(board, neighbours[k])) {
+          bordered[i] = true;
+        }
+      }
+    }
+    boolean[] seen = new boolean[cells];
+    int openings = 0;
+    int islands = 0;
+    int isolated = 0;
+    for (int i = 0; i < cells; i++) {
+      if (board.hasMine(i) || seen[i]) {
+        continue;
+      }
+      boolean zero = isZero(board, i);
+      if (!zero && bordered[i]) {
+        continue;
+      }
+      if (zero) {
+        openings++;
+      } else {
+        islands++;
+      }
+      ArrayDeque<Integer> queue = new ArrayDeque<>();
+      queue.add(i);
+      seen[i] = true;
+      while (!queue.isEmpty()) {
+        int cell = queue.poll();
+        if (!zero) {
+          isolated++;
+        }
+        for (int k = start[cell]; k < start[cell + 1]; k++) {
+          int next = neighbours[k];
+          if (seen[next] || board.hasMine(next) || isZero(board, next) != zero) {
+            continue;
+          }
+          if (!zero && bordered[next]) {
+            continue;
+          }
+          seen[next] = true;
+          queue.add(next);
+        }
+      }
+    }
+    return new int[] {openings, islands, isolated};
+  }
+
+  private static boolean isZero(Board board, int cell) {
+    return !board.hasMine(cell) && board.countAdjacentMines(cell) == 0;
+  }
+}
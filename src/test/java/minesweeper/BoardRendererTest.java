@@ -0,0 +1,54 @@
+package minesweeper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+/** Checks the reveal replay written by {@link BoardRenderer#writeRevealFrames}. */
+class BoardRendererTest {
+
+  private static final int CELL_SIZE = App.SPRITE_SIZE;
+
+  @Test
+  void revealFramesStartHiddenAndCoverTheLog() throws Exception {
+    Board board = new Board(7, 5, Topology.SQUARE);
+    board.setMine(board.index(6, 0));
+    board.setMine(board.index(6, 4));
+    board.reveal(0);
+    int revealed = board.getRevealLogLength();
+
+    BoardRenderer renderer = new BoardRenderer(CELL_SIZE);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int cellsPerFrame = 4;
+    int frames = renderer.writeRevealFrames(board, cellsPerFrame, out);
+
+    assertEquals(1 + (revealed + cellsPerFrame - 1) / cellsPerFrame, frames);
+    int width = renderer.getImageWidth();
+    int height = renderer.getImageHeight();
+    assertEquals(7 * CELL_SIZE, width);
+    assertEquals(5 * CELL_SIZE, height);
+    assertEquals((long) frames * width * height * 4, out.size());
+
+    // Every cell of the first frame is the hidden tile over the background.
+    BufferedImage tile = Sprites.load(CELL_SIZE).get("tile1");
+    ByteBuffer pixels = ByteBuffer.wrap(out.toByteArray());
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int expected = overBackground(tile.getRGB(x % CELL_SIZE, y % CELL_SIZE));
+        assertEquals(expected, pixels.getInt((y * width + x) * 4), x + "," + y);
+      }
+    }
+  }
+
+  private static int overBackground(int argb) {
+    int alpha = argb >>> 24;
+    int background = 0xC8;
+    int r = (((argb >> 16) & 0xFF) * alpha + background * (255 - alpha)) / 255;
+    int g = (((argb >> 8) & 0xFF) * alpha + background * (255 - alpha)) / 255;
+    int b = ((argb & 0xFF) * alpha + background * (255 - alpha)) / 255;
+    return 0xFF000000 | r << 16 | g << 8 | b;
+  }
+}
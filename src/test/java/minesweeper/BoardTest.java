@@ -0,0 +1,55 @@
+package minesweeper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/** Checks chording on a 3x3 board with one mine in the top left corner. */
+class BoardTest {
+
+  private static Board boardWithCentreRevealed() {
+    Board board = new Board(3, 3, Topology.SQUARE);
+    board.setMine(board.index(0, 0));
+    assertEquals(1, board.reveal(board.index(1, 1)));
+    return board;
+  }
+
+  @Test
+  void chordWithTooFewFlagsRevealsNothing() {
+    Board board = boardWithCentreRevealed();
+    assertEquals(0, board.chord(board.index(1, 1)));
+    assertEquals(1, board.getRevealLogLength());
+    assertEquals(-1, board.getTriggeredMine());
+  }
+
+  @Test
+  void chordWithTooManyFlagsRevealsNothing() {
+    Board board = boardWithCentreRevealed();
+    board.toggleFlag(board.index(0, 0));
+    board.toggleFlag(board.index(2, 2));
+    assertEquals(0, board.chord(board.index(1, 1)));
+    assertEquals(1, board.getRevealLogLength());
+    assertEquals(-1, board.getTriggeredMine());
+  }
+
+  @Test
+  void chordWithRightFlagRevealsTheRest() {
+    Board board = boardWithCentreRevealed();
+    board.toggleFlag(board.index(0, 0));
+    assertEquals(7, board.chord(board.index(1, 1)));
+    assertEquals(-1, board.getTriggeredMine());
+    assertTrue(board.isCleared());
+  }
+
+  @Test
+  void chordWithWrongFlagTriggersTheMine() {
+    Board board = boardWithCentreRevealed();
+    board.toggleFlag(board.index(2, 2));
+    assertEquals(7, board.chord(board.index(1, 1)));
+    assertEquals(board.index(0, 0), board.getTriggeredMine());
+    assertTrue(board.isRevealed(board.index(0, 0)));
+    assertFalse(board.isRevealed(board.index(2, 2)));
+  }
+}
@@ -0,0 +1,121 @@
+package minesweeper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Checks that the index survives a reopen, with and without its snapshot. */
+class ScoreStoreTest {
+
+  @TempDir Path dir;
+
+  @Test
+  void reopenAfterSnapshotKeepsEveryGame() throws Exception {
+    Path log = dir.resolve("scores.log");
+    List<ScoreStore.Game> played = new ArrayList<>();
+    for (int i = 0; i < ScoreStore.SNAPSHOT_INTERVAL + 500; i++) {
+      String config = i % 5 == 0 ? "hex" : "square";
+      played.add(new ScoreStore.Game(i, config, i, 1000 + i * 7919L % 50000, 10, 20, i % 3 != 0));
+    }
+    ScoreStore store = new ScoreStore(log);
+    store.open();
+    for (ScoreStore.Game game : played) {
+      store.record(game);
+    }
+    store.awaitPending();
+    store.close();
+
+    assertTrue(Files.exists(dir.resolve("scores.log.index")));
+    List<String> lines = Files.readAllLines(log, StandardCharsets.UTF_8);
+    assertEquals(played.size(), lines.size());
+    for (int i = 0; i < played.size(); i++) {
+      assertEquals(played.get(i).toLine(), lines.get(i));
+    }
+
+    assertMatches(played, reopen(log));
+    Files.delete(dir.resolve("scores.log.index"));
+    assertMatches(played, reopen(log));
+  }
+
+  @Test
+  void lineCutShortByCrashIsSkipped() throws Exception {
+    Path log = dir.resolve("scores.log");
+    ScoreStore.Game first = new ScoreStore.Game(1, "square", 1, 3000, 10, 20, true);
+    ScoreStore.Game second = new ScoreStore.Game(2, "square", 2, 2000, 10, 20, false);
+    Files.write(
+        log,
+        (first.toLine() + "\n" + second.toLine() + "\nG,3,square,3,15").getBytes(
+            StandardCharsets.UTF_8));
+
+    ScoreStore store = reopen(log);
+    assertEquals(2, store.games("square"));
+    ScoreStore.Game third = new ScoreStore.Game(4, "square", 4, 1000, 10, 20, true);
+    store.record(third);
+    store.awaitPending();
+    store.close();
+
+    store = reopen(log);
+    assertEquals(3, store.games("square"));
+    assertEquals(2, store.wins("square"));
+    assertEquals(1000, store.top("square", 1).get(0).millis);
+    List<String> lines = Files.readAllLines(log, StandardCharsets.UTF_8);
+    assertEquals(third.toLine(), lines.get(lines.size() - 1));
+  }
+
+  @Test
+  void snapshotLongerThanLogIsIgnored() throws Exception {
+    Path log = dir.resolve("scores.log");
+    ScoreStore.Game game = new ScoreStore.Game(1, "square", 1, 3000, 10, 20, true);
+    Files.write(log, (game.toLine() + "\n").getBytes(StandardCharsets.UTF_8));
+    Files.write(dir.resolve("scores.log.index"), Arrays.asList("S,100000", "L,square,7"));
+
+    ScoreStore store = reopen(log);
+    assertEquals(1, store.games("square"));
+    assertEquals(1, store.wins("square"));
+  }
+
+  private static ScoreStore reopen(Path log) throws InterruptedException {
+    ScoreStore store = new ScoreStore(log);
+    store.open();
+    store.awaitPending();
+    return store;
+  }
+
+  private static void assertMatches(List<ScoreStore.Game> played, ScoreStore store) {
+    for (String config : new String[] {"square", "hex"}) {
+      List<Long> times = new ArrayList<>();
+      int games = 0;
+      for (ScoreStore.Game game : played) {
+        if (game.config.equals(config)) {
+          games++;
+          if (game.won) {
+            times.add(game.millis);
+          }
+        }
+      }
+      Collections.sort(times);
+      assertEquals(games, store.games(config), config);
+      assertEquals(times.size(), store.wins(config), config);
+
+      List<ScoreStore.Game> top = store.top(config, ScoreStore.TOP_SIZE);
+      assertEquals(ScoreStore.TOP_SIZE, top.size(), config);
+      for (int i = 0; i < top.size(); i++) {
+        assertEquals(times.get(i).longValue(), top.get(i).millis, config);
+      }
+      for (double p : new double[] {0, 25, 50, 90, 100}) {
+        int at = Math.max(0, (int) Math.ceil(p / 100 * times.size()) - 1);
+        assertEquals(times.get(at).longValue(), store.percentile(config, p), config + " " + p);
+      }
+    }
+  }
+}
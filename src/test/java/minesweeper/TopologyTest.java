@@ -0,0 +1,117 @@
+package minesweeper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the flattened neighbour tables against neighbours worked out from coordinates, without
+ * the offset tables.
+ */
+class TopologyTest {
+
+  // Heights 1 to 5 give hex boards that end on both row parities; width 2 makes the torus wrap
+  // onto the same cell from both sides.
+  private static final int[][] SIZES = {
+    {1, 1}, {2, 1}, {1, 3}, {2, 2}, {2, 5}, {3, 2}, {3, 3}, {4, 4}, {5, 3}, {7, 6}, {8, 9}
+  };
+
+  @Test
+  void squareMatchesCoordinates() {
+    for (int[] size : SIZES) {
+      check(Topology.SQUARE, size[0], size[1]);
+    }
+  }
+
+  @Test
+  void hexMatchesCoordinates() {
+    for (int[] size : SIZES) {
+      check(Topology.HEX, size[0], size[1]);
+    }
+  }
+
+  @Test
+  void torusMatchesCoordinates() {
+    for (int[] size : SIZES) {
+      check(Topology.TORUS, size[0], size[1]);
+    }
+  }
+
+  @Test
+  void knightMatchesCoordinates() {
+    for (int[] size : SIZES) {
+      check(Topology.KNIGHT, size[0], size[1]);
+    }
+  }
+
+  private static void check(Topology topology, int width, int height) {
+    int[][] table = topology.buildNeighbours(width, height);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int index = y * width + x;
+        List<Integer> actual = new ArrayList<>();
+        for (int k = table[0][index]; k < table[0][index + 1]; k++) {
+          actual.add(table[1][k]);
+        }
+        actual.sort(null);
+        String name = topology + " " + width + "x" + height + " at " + x + "," + y;
+        // A list, not a set, so a neighbour listed twice shows up as a mismatch.
+        assertEquals(new ArrayList<>(reference(topology, x, y, width, height)), actual, name);
+      }
+    }
+  }
+
+  private static TreeSet<Integer> reference(
+      Topology topology, int x, int y, int width, int height) {
+    TreeSet<Integer> cells = new TreeSet<>();
+    switch (topology) {
+      case SQUARE:
+        for (int ny = y - 1; ny <= y + 1; ny++) {
+          for (int nx = x - 1; nx <= x + 1; nx++) {
+            addIfOnBoard(cells, nx, ny, width, height);
+          }
+        }
+        break;
+      case HEX:
+        // Axial coordinates: q = x - (y - (y & 1)) / 2, r = y, and the six neighbours are the
+        // axial unit steps.
+        int q = x - (y - (y & 1)) / 2;
+        int[] steps = {1, 0, -1, 0, 0, 1, 0, -1, 1, -1, -1, 1};
+        for (int k = 0; k < steps.length; k += 2) {
+          int nq = q + steps[k];
+          int nr = y + steps[k + 1];
+          addIfOnBoard(cells, nq + (nr - (nr & 1)) / 2, nr, width, height);
+        }
+        break;
+      case TORUS:
+        for (int ny = y - 1; ny <= y + 1; ny++) {
+          for (int nx = x - 1; nx <= x + 1; nx++) {
+            cells.add((ny + height) % height * width + (nx + width) % width);
+          }
+        }
+        break;
+      case KNIGHT:
+        for (int ny = y - 2; ny <= y + 2; ny++) {
+          for (int nx = x - 2; nx <= x + 2; nx++) {
+            if (Math.abs(nx - x) * Math.abs(ny - y) == 2) {
+              addIfOnBoard(cells, nx, ny, width, height);
+            }
+          }
+        }
+        break;
+      default:
+        throw new AssertionError(topology);
+    }
+    cells.remove(y * width + x);
+    return cells;
+  }
+
+  private static void addIfOnBoard(TreeSet<Integer> cells, int x, int y, int width, int height) {
+    if (x >= 0 && x < width && y >= 0 && y < height) {
+      cells.add(y * width + x);
+    }
+  }
+}